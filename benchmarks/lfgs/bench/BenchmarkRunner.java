@@ -0,0 +1,32 @@
+// Programmed by: Jasper Adrada
+
+package lfgs.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: runs the JMH suite with the GC profiler attached,
+ * so every result comes with ops/s and allocation rate (gc.alloc.rate.norm).
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the benchmarks.
+     * @param args Standard JMH command-line options, e.g. a benchmark regex or "-wi 1 -i 3".
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (cmd.getIncludes().isEmpty()) {
+            builder.include("lfgs\\.bench\\..*");
+        }
+        Options options = builder.parent(cmd).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,57 @@
+// Programmed by: Jasper Adrada
+
+package lfgs.bench;
+
+import lfgs.DungeonManager;
+import lfgs.DungeonStatus;
+import lfgs.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end assignment rate: permit, dungeon ID, status updates and the
+ * zero-length run's completion callback, for different pool sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DungeonManagerBenchmark {
+    private static final String[] PARTY = {"Tank-1", "Healer-1", "DPS-1", "DPS-2", "DPS-3"};
+
+    @Param({"1", "64", "4096"})
+    public int maxDungeons;
+
+    private DungeonManager dungeonManager;
+
+    @Setup
+    public void setup() {
+        // Runs take 0 seconds, so the benchmark measures assignment and completion overhead only.
+        DungeonStatus dungeonStatus = new DungeonStatus(maxDungeons, false);
+        dungeonManager = new DungeonManager(maxDungeons, 0, 0, dungeonStatus, ExecutionMode.TIMER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dungeonManager.shutdown();
+    }
+
+    @Benchmark
+    public void assignPartyToInstance() {
+        dungeonManager.assignPartyToInstance(PARTY);
+    }
+}
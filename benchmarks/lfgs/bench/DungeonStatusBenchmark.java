@@ -0,0 +1,72 @@
+// Programmed by: Jasper Adrada
+
+package lfgs.bench;
+
+import lfgs.DungeonStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures DungeonStatus update contention: each operation is the start and finish
+ * updates of one run, issued by 1, 4 or all-cores writer threads against a shared
+ * status. Fewer dungeons means more writers hit the same counters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DungeonStatusBenchmark {
+
+    @Param({"1", "1024"})
+    public int dungeons;
+
+    private DungeonStatus dungeonStatus;
+
+    @Setup
+    public void setup() {
+        dungeonStatus = new DungeonStatus(dungeons, false);
+        for (int i = 1; i <= dungeons; i++) {
+            dungeonStatus.setDungeonName(i, "Dungeon" + i);
+            dungeonStatus.updateDungeon(i, false);
+        }
+    }
+
+    private void runOnce() {
+        int dungeonID = 1 + ThreadLocalRandom.current().nextInt(dungeons);
+        dungeonStatus.startRun(dungeonID, 1);
+        dungeonStatus.finishRun(dungeonID, 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void updates1Writer() {
+        runOnce();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updates4Writers() {
+        runOnce();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void updatesAllCores() {
+        runOnce();
+    }
+}
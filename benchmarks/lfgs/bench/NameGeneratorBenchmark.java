@@ -0,0 +1,48 @@
+// Programmed by: Jasper Adrada
+
+package lfgs.bench;
+
+import lfgs.DungeonNameGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures DungeonNameGenerator.nameOf, which spells out a dungeon's name whenever the
+ * status shows it. The larger pool needs 4-syllable names.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NameGeneratorBenchmark {
+
+    @Param({"1024", "1000000"})
+    public int capacity;
+
+    private DungeonNameGenerator generator;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        generator = new DungeonNameGenerator(capacity, 42L);
+    }
+
+    @Benchmark
+    public String nameOf() {
+        if (++index > capacity) index = 1;
+        return generator.nameOf(index);
+    }
+}
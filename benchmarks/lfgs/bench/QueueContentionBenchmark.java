@@ -0,0 +1,89 @@
+// Programmed by: Jasper Adrada
+
+package lfgs.bench;
+
+import lfgs.ConcurrentQueueManager;
+import lfgs.PartyBatch;
+import lfgs.PartyQueue;
+import lfgs.QueueManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the queues under contention: four producer threads add players while one
+ * matcher thread forms parties from the same queue. The "produce" score is players
+ * added per second, the "match" score is takeParties calls per second. Producers wait
+ * while a backlog of players is queued, so the locked queue cannot grow without bound.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class QueueContentionBenchmark {
+    private static final String[] ROLE_MIX = {"Tank", "Healer", "DPS", "DPS", "DPS"};
+    private static final int BACKLOG = 1 << 14;
+    private static final int BATCH = 64;
+
+    @Param({"locked", "concurrent"})
+    public String queueType;
+
+    private PartyQueue queue;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger nextID = new AtomicInteger();
+
+    @Setup
+    public void setup() {
+        queue = queueType.equals("concurrent") ? new ConcurrentQueueManager(1 << 16) : new QueueManager();
+        queued.set(0);
+    }
+
+    /**
+     * Per-thread state of the matcher.
+     */
+    @State(Scope.Thread)
+    public static class Matcher {
+        PartyBatch batch = new PartyBatch(BATCH);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public boolean produce(Control control) {
+        while (queued.get() >= BACKLOG) {
+            // The matcher may already have stopped at the end of an iteration.
+            if (control.stopMeasurement) return false;
+            Thread.onSpinWait();
+        }
+        int id = nextID.getAndIncrement();
+        boolean added = queue.addPlayer(ROLE_MIX[id % ROLE_MIX.length], id);
+        if (added) queued.incrementAndGet();
+        return added;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int match(Matcher matcher) {
+        matcher.batch.clear();
+        int taken = queue.takeParties(matcher.batch, BATCH);
+        if (taken > 0) queued.addAndGet(-taken * ROLE_MIX.length);
+        return taken;
+    }
+}
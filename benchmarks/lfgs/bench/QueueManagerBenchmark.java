@@ -0,0 +1,85 @@
+// Programmed by: Jasper Adrada
+
+package lfgs.bench;
+
+import lfgs.ConcurrentQueueManager;
+import lfgs.PartyBatch;
+import lfgs.PartyQueue;
+import lfgs.QueueManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures party formation throughput. Each operation queues one party's worth of
+ * players (1 Tank, 1 Healer, 3 DPS) and forms a party from them, so the queue
+ * stays at a steady depth.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueueManagerBenchmark {
+    private static final int BATCH = 64;
+
+    @Param({"locked", "concurrent"})
+    public String queueType;
+
+    private PartyQueue queue;
+    private PartyBatch batch;
+    private int nextID;
+
+    @Setup
+    public void setup() {
+        queue = queueType.equals("concurrent") ? new ConcurrentQueueManager(1 << 16) : new QueueManager();
+        batch = new PartyBatch(BATCH);
+    }
+
+    private void addParty() {
+        int id = nextID++;
+        queue.addPlayer("Tank", id);
+        queue.addPlayer("Healer", id);
+        queue.addPlayer("DPS", id);
+        queue.addPlayer("DPS", id);
+        queue.addPlayer("DPS", id);
+    }
+
+    @Benchmark
+    public String[] getParty() {
+        addParty();
+        return queue.getParty();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<String[]> getPartiesBatch() {
+        for (int i = 0; i < BATCH; i++) {
+            addParty();
+        }
+        return queue.getParties(BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int takePartiesBatch() {
+        for (int i = 0; i < BATCH; i++) {
+            addParty();
+        }
+        batch.clear();
+        return queue.takeParties(batch, BATCH);
+    }
+}
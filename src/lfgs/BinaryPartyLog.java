@@ -0,0 +1,78 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary party completion log.
+ * A 16-byte header (magic, version, record size) is followed by fixed-width
+ * 32-byte little-endian records:
+ * <pre>
+ *  0  int  partyID
+ *  4  int  dungeonID
+ *  8  long startMillis
+ * 16  long finishMillis
+ * 24  int  clearTime (seconds)
+ * 28  int  reserved
+ * </pre>
+ */
+public final class BinaryPartyLog {
+    public static final int MAGIC = 0x4C464742; // "LFGB"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 32;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int PARTY_ID = 0;
+    public static final int DUNGEON_ID = 4;
+    public static final int START_MILLIS = 8;
+    public static final int FINISH_MILLIS = 16;
+    public static final int CLEAR_TIME = 24;
+
+    private BinaryPartyLog() {
+    }
+
+    /**
+     * Writes the file header at the buffer's position.
+     * @param buffer Buffer in {@link #ORDER} byte order.
+     */
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putLong(0L);
+    }
+
+    /**
+     * Checks the file header at absolute offset 0.
+     * @param buffer Buffer in {@link #ORDER} byte order.
+     * @throws IOException if the header is missing or does not match this format.
+     */
+    public static void checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary party log.");
+        }
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+            throw new IOException("Unsupported binary party log version.");
+        }
+    }
+
+    /**
+     * Writes one record at the buffer's position.
+     * @param buffer Buffer in {@link #ORDER} byte order with at least RECORD_SIZE bytes remaining.
+     * @param partyID The party identifier.
+     * @param dungeonID The dungeon identifier.
+     * @param startMillis When the run started.
+     * @param finishMillis When the run finished.
+     * @param clearTime The time (in seconds) the party took.
+     */
+    public static void writeRecord(ByteBuffer buffer, int partyID, int dungeonID, long startMillis,
+                                   long finishMillis, int clearTime) {
+        buffer.putInt(partyID)
+                .putInt(dungeonID)
+                .putLong(startMillis)
+                .putLong(finishMillis)
+                .putInt(clearTime)
+                .putInt(0);
+    }
+}
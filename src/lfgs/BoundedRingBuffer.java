@@ -0,0 +1,108 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer/multi-consumer ring buffer.
+ * Each slot carries a sequence number that tells producers and consumers whether
+ * the slot is free or published, so neither side ever takes a lock.
+ * Values and their stamps are primitive longs, so offering and polling allocate nothing.
+ */
+public class BoundedRingBuffer {
+    private final long[] values;
+    private final AtomicLongArray sequences;
+    private final long[] stamps;
+    private final int mask;
+    // Tail (next write position) and head (next read position) live 128 bytes apart in one
+    // array so producers and consumers do not invalidate each other's cache line.
+    private static final int TAIL = 15;
+    private static final int HEAD = 31;
+    private final AtomicLongArray positions = new AtomicLongArray(47);
+
+    /**
+     * Constructs a BoundedRingBuffer.
+     * @param capacity Requested capacity; rounded up to the next power of two.
+     * @throws IllegalArgumentException if capacity is less than 1 or larger than 2^30.
+     */
+    public BoundedRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.values = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        this.stamps = new long[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds a value with a timestamp if there is room.
+     * @param value The value to add (e.g. a player ID).
+     * @param stamp A value stored alongside it (e.g. its enqueue time).
+     * @return True if added; false if the buffer is full.
+     */
+    public boolean offer(long value, long stamp) {
+        while (true) {
+            long pos = positions.get(TAIL);
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (positions.compareAndSet(TAIL, pos, pos + 1)) {
+                    // Plain writes; the volatile sequence store below publishes them.
+                    values[index] = value;
+                    stamps[index] = stamp;
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest published value.
+     * @param out Receives the value in out[0] and its timestamp in out[1].
+     * @return True if a value was removed; false if none is published yet.
+     */
+    public boolean poll(long[] out) {
+        while (true) {
+            long pos = positions.get(HEAD);
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (positions.compareAndSet(HEAD, pos, pos + 1)) {
+                    out[0] = values[index];
+                    out[1] = stamps[index];
+                    sequences.set(index, pos + mask + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of claimed elements. A producer may still be publishing the
+     * most recent ones, so a following poll() can briefly return false.
+     * @return The approximate number of elements in the buffer.
+     */
+    public int size() {
+        long size = positions.get(TAIL) - positions.get(HEAD);
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * @return The fixed capacity of the buffer.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
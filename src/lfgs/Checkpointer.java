@@ -0,0 +1,104 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Periodically writes queue and dungeon state to a {@link DungeonCheckpoint} file
+ * from a background thread.
+ * The queue and the dungeons are copied under the dungeon pool's checkpoint lock, and
+ * parties move from the queue to a dungeon only through
+ * {@link DungeonManager#takeAndAssignParties}, so every party is saved exactly once:
+ * either as queued players or as a run.
+ */
+public class Checkpointer {
+    private final DungeonCheckpoint file;
+    private final QueueManager queue;
+    private final DungeonManager dungeonManager;
+    private final DungeonCheckpoint.State state;
+    private final long intervalMillis;
+    private volatile boolean running = true;
+    private final Object wakeLock = new Object();
+    private Thread thread;
+
+    /**
+     * Constructs a Checkpointer.
+     * @param path The checkpoint file.
+     * @param queue The queue to save (may be null to save dungeons only).
+     * @param dungeonManager The dungeon pool to save.
+     * @param maxDungeons Number of dungeons in the pool.
+     * @param intervalMillis Time between checkpoints.
+     * @param sync True to force every checkpoint to the storage device.
+     */
+    public Checkpointer(Path path, QueueManager queue, DungeonManager dungeonManager, int maxDungeons,
+                        long intervalMillis, boolean sync) {
+        this.file = new DungeonCheckpoint(path, maxDungeons, sync);
+        this.queue = queue;
+        this.dungeonManager = dungeonManager;
+        this.state = new DungeonCheckpoint.State(maxDungeons);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Writes one checkpoint now.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long now = System.currentTimeMillis();
+        state.takenMillis = now;
+        dungeonManager.capture(state, queue, now);
+        file.write(state);
+    }
+
+    /**
+     * Writes a first checkpoint and then one every interval until {@link #stop} is called.
+     */
+    public void start() {
+        thread = new Thread(() -> {
+            while (running) {
+                try {
+                    checkpoint();
+                    // Not Thread.sleep/interrupt: an interrupt would close the file channel mid-write.
+                    synchronized (wakeLock) {
+                        if (running) wakeLock.wait(intervalMillis);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "lfg-checkpoint");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops checkpointing.
+     * @param delete True to delete the file (the run finished and there is nothing to resume).
+     */
+    public void stop(boolean delete) {
+        running = false;
+        synchronized (wakeLock) {
+            wakeLock.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            if (delete) {
+                file.delete();
+            } else {
+                file.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
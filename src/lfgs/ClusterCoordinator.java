@@ -0,0 +1,414 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs matchmaking in this process and dispatches parties to {@link ClusterWorker}
+ * processes that host the dungeons. Each worker is picked with a probability proportional
+ * to the number of dungeons it has free; completions streamed back by the workers
+ * are applied to the central DungeonStatus.
+ * <p>
+ * A worker whose connection fails or closes before shutdown is dropped: its dungeons are
+ * taken off the status and the parties it had not finished are sent to the other workers.
+ */
+public class ClusterCoordinator {
+    private final Worker[] workers;
+    private final MatchmakingMetrics metrics;
+    private final Object capacityLock = new Object();
+    private final int totalCapacity;
+    private int totalFree; // guarded by capacityLock
+    private int liveCapacity; // guarded by capacityLock
+    private int liveWorkers; // guarded by capacityLock
+    private int partyCount = 0;
+    private DungeonStatus dungeonStatus;
+    private volatile boolean closing = false;
+
+    /**
+     * One connected worker process.
+     */
+    private static class Worker {
+        final int number;
+        final SocketChannel channel;
+        final int capacity;
+        final int idOffset;
+        // Batched PARTY frames not yet written; guarded by the worker itself.
+        final ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+        // Parties sent but not yet started, in the order sent (the worker starts them in
+        // that order), and the party in each of its dungeons; guarded by capacityLock.
+        final LongQueue sent = new LongQueue();
+        final int[] inside;
+        int free; // guarded by capacityLock
+        volatile boolean alive = true; // written under capacityLock
+        Thread reader;
+
+        Worker(int number, SocketChannel channel, int capacity, int idOffset) {
+            this.number = number;
+            this.channel = channel;
+            this.capacity = capacity;
+            this.idOffset = idOffset;
+            this.inside = new int[capacity];
+            this.free = capacity;
+        }
+    }
+
+    /**
+     * Listens on the loopback address until the given number of workers have connected
+     * and advertised their capacity.
+     * @param port Local port to listen on.
+     * @param workerCount Number of workers to wait for.
+     * @param metrics Receives slot-wait, run-time and utilization data (may be null).
+     * @throws IOException if the port cannot be bound or a worker misbehaves.
+     */
+    public ClusterCoordinator(int port, int workerCount, MatchmakingMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.workers = new Worker[workerCount];
+        int offset = 0;
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            System.out.println("Waiting for " + workerCount + " worker(s) on port " + port + "...");
+            for (int i = 0; i < workerCount; i++) {
+                SocketChannel channel = server.accept();
+                ClusterProtocol.FrameReader reader = new ClusterProtocol.FrameReader(channel);
+                if (reader.next() != ClusterProtocol.HELLO) {
+                    channel.close();
+                    throw new IOException("Worker did not introduce itself.");
+                }
+                int capacity = reader.readInt();
+                if (capacity < 1) {
+                    channel.close();
+                    throw new IOException("Worker advertised " + capacity + " dungeons.");
+                }
+                workers[i] = new Worker(i + 1, channel, capacity, offset);
+                offset += capacity;
+                System.out.println("Worker " + (i + 1) + " connected with " + capacity + " dungeons.");
+            }
+        }
+        this.totalCapacity = offset;
+        this.totalFree = offset;
+        this.liveCapacity = offset;
+        this.liveWorkers = workerCount;
+    }
+
+    /**
+     * @return Number of dungeons across all workers.
+     */
+    public int getTotalCapacity() {
+        return totalCapacity;
+    }
+
+    /**
+     * Registers every worker's dungeons in the central status, tells each worker its ID range
+     * and run times, and starts listening for run updates.
+     * @param dungeonStatus The central status (sized for {@link #getTotalCapacity()}).
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @throws IOException if a worker cannot be reached.
+     */
+    public void start(DungeonStatus dungeonStatus, int minTime, int maxTime) throws IOException {
+        this.dungeonStatus = dungeonStatus;
+        dungeonStatus.addDungeons(1, totalCapacity);
+        if (metrics != null) {
+            metrics.setDungeonPool(totalCapacity, () -> {
+                synchronized (capacityLock) {
+                    return liveCapacity - totalFree;
+                }
+            });
+        }
+
+        ByteBuffer welcome = ByteBuffer.allocate(ClusterProtocol.frameSize(ClusterProtocol.WELCOME));
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[i];
+            welcome.clear();
+            welcome.put(ClusterProtocol.WELCOME).putInt(worker.idOffset).putInt(minTime).putInt(maxTime);
+            welcome.flip();
+            ClusterProtocol.writeFully(worker.channel, welcome);
+
+            worker.reader = new Thread(() -> readUpdates(worker), "lfg-cluster-worker-" + (i + 1));
+            worker.reader.setDaemon(true);
+            worker.reader.start();
+        }
+    }
+
+    /**
+     * Forms parties and sends them to workers until the queue cannot form another one.
+     * Parties for the same worker are written together; the call waits whenever every
+     * dungeon in the cluster is busy.
+     * @param queue The queue to take parties from.
+     * @param batchSize Maximum number of parties formed at once.
+     * @throws IOException if every worker has been lost, or if interrupted while waiting.
+     */
+    public void dispatch(PartyQueue queue, int batchSize) throws IOException {
+        PartyBatch batch = new PartyBatch(Math.max(1, batchSize));
+        while (queue.canFormParty()) {
+            batch.clear();
+            int formed = queue.takeParties(batch, batch.capacity());
+            dungeonStatus.getEvents().partiesFormed(formed);
+            for (int i = 0; i < formed; i++) {
+                int partyID = ++partyCount;
+                Worker worker;
+                try {
+                    worker = reserveWorker(partyID);
+                } catch (IOException e) {
+                    dungeonStatus.getEvents().partiesLost(formed - i);
+                    throw e;
+                }
+                send(worker, partyID);
+            }
+            flushAll();
+        }
+    }
+
+    /**
+     * Checks if every dungeon in the cluster is free.
+     * @return True if no worker is running a party.
+     */
+    public boolean allDungeonsFree() {
+        synchronized (capacityLock) {
+            return totalFree == liveCapacity;
+        }
+    }
+
+    /**
+     * Tells every worker to finish and waits for their connections to close.
+     */
+    public void shutdown() {
+        closing = true;
+        ByteBuffer bye = ByteBuffer.allocate(1);
+        for (Worker worker : workers) {
+            if (!worker.alive) continue;
+            try {
+                bye.clear();
+                bye.put(ClusterProtocol.SHUTDOWN).flip();
+                ClusterProtocol.writeFully(worker.channel, bye);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        for (Worker worker : workers) {
+            try {
+                if (worker.reader != null) worker.reader.join(5000);
+                worker.channel.close();
+            } catch (InterruptedException | IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Takes one free dungeon for a party from a worker chosen in proportion to its free
+     * capacity. Pending frames are written before waiting, since the completions being
+     * waited for may belong to them. They are written outside the capacity lock: a write
+     * can block until a worker drains its socket, and that worker may itself be blocked
+     * until the reader threads, which need the lock, take its completions.
+     * @throws IOException if every worker has been lost, or if interrupted while waiting
+     *                     (the interrupt is kept).
+     */
+    private Worker reserveWorker(int partyID) throws IOException {
+        long waitStart = System.nanoTime();
+        while (true) {
+            synchronized (capacityLock) {
+                if (liveWorkers == 0) {
+                    throw new IOException("Every worker has been lost.");
+                }
+                if (totalFree > 0) {
+                    Worker worker = pickWorker();
+                    worker.sent.add(partyID);
+                    if (metrics != null) {
+                        metrics.recordSlotWait(System.nanoTime() - waitStart, 1);
+                    }
+                    return worker;
+                }
+            }
+            flushAll();
+            synchronized (capacityLock) {
+                while (totalFree == 0 && liveWorkers > 0) {
+                    try {
+                        capacityLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for a free dungeon.");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a free dungeon from a randomly chosen worker. Called under the capacity lock
+     * with at least one dungeon free.
+     */
+    private Worker pickWorker() {
+        int pick = ThreadLocalRandom.current().nextInt(totalFree);
+        for (Worker worker : workers) {
+            if (pick < worker.free) {
+                worker.free--;
+                totalFree--;
+                return worker;
+            }
+            pick -= worker.free;
+        }
+        throw new IllegalStateException("Free dungeon count is out of step with the workers.");
+    }
+
+    /**
+     * Queues a PARTY frame for a worker, writing its pending frames first if they fill the buffer.
+     */
+    private void send(Worker worker, int partyID) {
+        synchronized (worker) {
+            if (worker.out.remaining() < ClusterProtocol.MAX_FRAME_SIZE) {
+                flush(worker);
+            }
+            worker.out.put(ClusterProtocol.PARTY).putInt(partyID);
+        }
+    }
+
+    private void flushAll() {
+        for (Worker worker : workers) {
+            flush(worker);
+        }
+    }
+
+    /**
+     * Writes a worker's pending frames. If the write fails the connection is closed, which
+     * ends the worker's reader thread; that thread then re-sends every party the worker
+     * had not finished, these included.
+     */
+    private void flush(Worker worker) {
+        synchronized (worker) {
+            worker.out.flip();
+            try {
+                if (worker.alive && worker.out.hasRemaining()) {
+                    ClusterProtocol.writeFully(worker.channel, worker.out);
+                }
+            } catch (IOException e) {
+                close(worker);
+            } finally {
+                worker.out.clear();
+            }
+        }
+    }
+
+    private static void close(Worker worker) {
+        try {
+            worker.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies one worker's STARTED and FINISHED frames to the central status until it
+     * disconnects. A disconnect before shutdown hands the worker's parties to the others.
+     */
+    private void readUpdates(Worker worker) {
+        ClusterProtocol.FrameReader reader = new ClusterProtocol.FrameReader(worker.channel);
+        IOException failure = null;
+        try {
+            int type;
+            while ((type = reader.next()) != -1) {
+                if (type != ClusterProtocol.STARTED && type != ClusterProtocol.FINISHED) {
+                    throw new IOException("Unexpected frame type from worker: " + type);
+                }
+                int dungeonID = reader.readInt();
+                int partyID = reader.readInt();
+                int slot = dungeonID - worker.idOffset - 1;
+                if (slot < 0 || slot >= worker.capacity) {
+                    throw new IOException("Worker reported dungeon " + dungeonID + " outside its range.");
+                }
+                if (type == ClusterProtocol.STARTED) {
+                    synchronized (capacityLock) {
+                        if (worker.sent.size() == 0 || worker.sent.peek() != partyID) {
+                            throw new IOException("Worker started party " + partyID + " out of turn.");
+                        }
+                        worker.sent.poll();
+                        worker.inside[slot] = partyID;
+                    }
+                    dungeonStatus.startRun(dungeonID, partyID);
+                    dungeonStatus.getEvents().dungeonStarted(dungeonID, partyID);
+                } else {
+                    int clearTime = reader.readInt();
+                    synchronized (capacityLock) {
+                        if (worker.inside[slot] != partyID) {
+                            throw new IOException("Worker finished party " + partyID + " it had not started.");
+                        }
+                        worker.inside[slot] = 0;
+                    }
+                    dungeonStatus.finishRun(dungeonID, clearTime);
+                    dungeonStatus.addPartyStatus(partyID, dungeonID, clearTime);
+                    if (metrics != null) {
+                        metrics.recordCompletion(clearTime);
+                    }
+                    synchronized (capacityLock) {
+                        worker.free++;
+                        totalFree++;
+                        capacityLock.notifyAll();
+                    }
+                    dungeonStatus.getEvents().dungeonFinished(dungeonID, partyID, clearTime);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        if (!closing) {
+            failOver(worker, failure);
+        }
+    }
+
+    /**
+     * Drops a worker whose connection was lost: its capacity no longer counts, its dungeons
+     * leave the status, and the parties it had not finished are sent to the other workers.
+     * Waiters for a free dungeon are woken so they see the smaller cluster. Parties that
+     * cannot be placed because every worker is gone are published as lost, so nothing
+     * waits for them to drain.
+     * @param cause The read failure, or null if the worker closed the connection.
+     */
+    private void failOver(Worker worker, IOException cause) {
+        LongQueue orphans = new LongQueue();
+        synchronized (capacityLock) {
+            worker.alive = false;
+            liveWorkers--;
+            liveCapacity -= worker.capacity;
+            totalFree -= worker.free;
+            worker.free = 0;
+            for (int slot = 0; slot < worker.capacity; slot++) {
+                if (worker.inside[slot] != 0) {
+                    orphans.add(worker.inside[slot]);
+                    worker.inside[slot] = 0;
+                    dungeonStatus.updateDungeon(worker.idOffset + slot + 1, false);
+                }
+            }
+            while (worker.sent.size() > 0) {
+                orphans.add(worker.sent.poll());
+            }
+            capacityLock.notifyAll();
+        }
+        close(worker);
+        dungeonStatus.removeDungeons(worker.idOffset + 1, worker.capacity);
+        if (cause != null) cause.printStackTrace();
+        System.out.println("Worker " + worker.number + " was lost; re-sending its " + orphans.size() + " part"
+                + (orphans.size() == 1 ? "y." : "ies."));
+
+        while (orphans.size() > 0) {
+            int partyID = (int) orphans.peek();
+            try {
+                Worker target = reserveWorker(partyID);
+                send(target, partyID);
+                flush(target);
+                orphans.poll();
+            } catch (IOException e) {
+                e.printStackTrace();
+                dungeonStatus.getEvents().partiesLost(orphans.size());
+                return;
+            }
+        }
+    }
+}
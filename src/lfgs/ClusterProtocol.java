@@ -0,0 +1,118 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Wire format between a {@link ClusterCoordinator} and its {@link ClusterWorker}s.
+ * Every frame is a 1-byte type followed by a fixed number of big-endian ints:
+ * <pre>
+ * HELLO     worker -> coordinator  capacity
+ * WELCOME   coordinator -> worker  idOffset, minTime, maxTime
+ * PARTY     coordinator -> worker  partyID
+ * STARTED   worker -> coordinator  dungeonID, partyID
+ * FINISHED  worker -> coordinator  dungeonID, partyID, clearTime
+ * SHUTDOWN  coordinator -> worker  (no payload)
+ * </pre>
+ * Dungeon IDs on the wire are already global (worker offset + local ID).
+ */
+public final class ClusterProtocol {
+    public static final int DEFAULT_PORT = 7450;
+
+    public static final byte HELLO = 1;
+    public static final byte WELCOME = 2;
+    public static final byte PARTY = 3;
+    public static final byte STARTED = 4;
+    public static final byte FINISHED = 5;
+    public static final byte SHUTDOWN = 6;
+
+    public static final int MAX_FRAME_SIZE = 13;
+
+    private ClusterProtocol() {
+    }
+
+    /**
+     * Returns the full size of a frame, type byte included.
+     * @param type The frame type.
+     * @return The size in bytes.
+     * @throws IOException if the type is unknown.
+     */
+    public static int frameSize(byte type) throws IOException {
+        switch (type) {
+            case HELLO:
+            case PARTY:
+                return 5;
+            case WELCOME:
+            case FINISHED:
+                return 13;
+            case STARTED:
+                return 9;
+            case SHUTDOWN:
+                return 1;
+            default:
+                throw new IOException("Unknown frame type: " + type);
+        }
+    }
+
+    /**
+     * Writes everything between the buffer's position and limit.
+     * @param channel A blocking channel.
+     * @param buffer The bytes to write, in read mode.
+     * @throws IOException if the write fails.
+     */
+    public static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads whole frames from a blocking channel through one reusable buffer.
+     */
+    public static final class FrameReader {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(8192);
+
+        /**
+         * @param channel A blocking channel.
+         */
+        public FrameReader(SocketChannel channel) {
+            this.channel = channel;
+            in.flip();
+        }
+
+        /**
+         * Waits for the next complete frame and consumes its type byte.
+         * The payload is then read with {@link #readInt()}.
+         * @return The frame type, or -1 if the peer closed the connection.
+         * @throws IOException if the read fails or the type is unknown.
+         */
+        public int next() throws IOException {
+            if (!fill(1)) return -1;
+            byte type = in.get(in.position());
+            if (!fill(frameSize(type))) return -1;
+            in.get();
+            return type;
+        }
+
+        /**
+         * @return The next int of the current frame's payload.
+         */
+        public int readInt() {
+            return in.getInt();
+        }
+
+        private boolean fill(int bytes) throws IOException {
+            while (in.remaining() < bytes) {
+                in.compact();
+                int read = channel.read(in);
+                in.flip();
+                if (read < 0) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A separate process that hosts one {@link DungeonManager} pool for a {@link ClusterCoordinator}.
+ * It advertises its capacity, runs the parties it is sent, and streams every run's
+ * start and completion back so the coordinator's DungeonStatus stays current.
+ * <p>
+ * Settings: -Dlfg.cluster.host (default 127.0.0.1), -Dlfg.cluster.port (default 7450),
+ * -Dlfg.cluster.dungeons (default 64) and -Dlfg.mode=timer|thread|virtual (default: timer).
+ */
+public class ClusterWorker implements RunListener {
+    private final SocketChannel channel;
+    private final int capacity;
+    private final ExecutionMode mode;
+    private final ByteBuffer out = ByteBuffer.allocate(ClusterProtocol.MAX_FRAME_SIZE);
+    // Set when a run could not be reported; the worker then stops taking parties.
+    // The coordinator sees the closed connection and re-sends the unfinished parties elsewhere.
+    private volatile IOException failure;
+
+    /**
+     * Constructs a ClusterWorker over an open connection.
+     * @param channel Blocking channel connected to the coordinator.
+     * @param capacity Number of dungeons this worker hosts.
+     * @param mode How dungeon runs are executed.
+     */
+    public ClusterWorker(SocketChannel channel, int capacity, ExecutionMode mode) {
+        if (mode == ExecutionMode.SIMULATION) {
+            throw new IllegalArgumentException("Workers run real dungeons; simulation mode is not supported.");
+        }
+        this.channel = channel;
+        this.capacity = capacity;
+        this.mode = mode;
+    }
+
+    /**
+     * Registers with the coordinator and serves parties until told to shut down.
+     * Returns once the last run has finished and been reported.
+     * @throws IOException if the connection fails, including when a run could not be
+     *                     reported. The connection is then closed at once and the runs in
+     *                     progress are abandoned, since the coordinator hands those parties
+     *                     to the other workers when it sees the connection close.
+     */
+    public void run() throws IOException {
+        send(ClusterProtocol.HELLO, capacity);
+
+        ClusterProtocol.FrameReader reader = new ClusterProtocol.FrameReader(channel);
+        if (reader.next() != ClusterProtocol.WELCOME) {
+            throw new IOException("Coordinator did not accept this worker.");
+        }
+        int idOffset = reader.readInt();
+        int minTime = reader.readInt();
+        int maxTime = reader.readInt();
+
+        // The local status only backs the manager's bookkeeping; the coordinator's is the one shown.
+        DungeonStatus localStatus = new DungeonStatus(idOffset + capacity, false);
+        DungeonManager dungeonManager = new DungeonManager(capacity, minTime, maxTime, localStatus, mode, null,
+                idOffset, new AtomicInteger());
+        dungeonManager.setRunListener(this);
+        System.out.println("Worker hosting dungeons " + (idOffset + 1) + "-" + (idOffset + capacity));
+
+        int type;
+        IOException lost = null;
+        try {
+            while ((type = reader.next()) == ClusterProtocol.PARTY) {
+                dungeonManager.assignPartyWithID(reader.readInt());
+            }
+        } catch (IOException e) {
+            // A failed report closes the channel under the reader; that failure is reported below.
+            lost = e;
+            type = -1;
+        }
+
+        if (type != ClusterProtocol.SHUTDOWN || failure != null) {
+            // The coordinator has given up on (or never hears about) the runs in progress.
+            channel.close();
+            dungeonManager.shutdown();
+            if (failure != null) {
+                throw new IOException("Lost the coordinator while reporting runs.", failure);
+            }
+            if (lost != null) throw lost;
+            System.out.println("Coordinator closed the connection.");
+            return;
+        }
+
+        // Shutdown: let the running parties finish and be reported, then leave.
+        try {
+            localStatus.getEvents().awaitDrained();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        dungeonManager.shutdown();
+        if (failure != null) {
+            throw new IOException("Lost the coordinator while reporting runs.", failure);
+        }
+    }
+
+    @Override
+    public void runStarted(int dungeonID, int partyID) {
+        report(ClusterProtocol.STARTED, dungeonID, partyID);
+    }
+
+    @Override
+    public void runFinished(int dungeonID, int partyID, int clearTime) {
+        report(ClusterProtocol.FINISHED, dungeonID, partyID, clearTime);
+    }
+
+    /**
+     * Sends a run update from a listener callback, which cannot throw. If the coordinator
+     * cannot be reached the channel is closed, so {@link #run} stops taking parties and
+     * reports the failure once the runs in progress have finished.
+     */
+    private void report(byte type, int... payload) {
+        try {
+            send(type, payload);
+        } catch (IOException e) {
+            if (failure != null) return;
+            failure = e;
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                closeFailure.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes one frame. Runs start on the reader thread and finish on timer or
+     * run threads, so writes are serialized here.
+     * @throws IOException if the frame cannot be written or an earlier one failed.
+     */
+    private synchronized void send(byte type, int... payload) throws IOException {
+        if (failure != null) {
+            throw new IOException("Connection to the coordinator was lost.", failure);
+        }
+        out.clear();
+        out.put(type);
+        for (int value : payload) {
+            out.putInt(value);
+        }
+        out.flip();
+        ClusterProtocol.writeFully(channel, out);
+    }
+
+    public static void main(String[] args) {
+        String host = System.getProperty("lfg.cluster.host", "127.0.0.1");
+        int port = Integer.getInteger("lfg.cluster.port", ClusterProtocol.DEFAULT_PORT);
+        int capacity = Math.max(1, Integer.getInteger("lfg.cluster.dungeons", 64));
+        ExecutionMode mode = ExecutionMode.fromString(System.getProperty("lfg.mode", "timer"));
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            new ClusterWorker(channel, capacity, mode).run();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
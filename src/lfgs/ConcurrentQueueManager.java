@@ -0,0 +1,115 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * Player queue for live arrivals from many threads.
+ * Each role is a bounded lock-free ring buffer, so producers never block: a full role
+ * queue rejects the player instead. Matchers serialize only among themselves.
+ */
+public class ConcurrentQueueManager implements PartyQueue {
+    // Every slot is allocated up front, 24 bytes per slot per role: about 4.7 MB at this size.
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final BoundedRingBuffer tanks;
+    private final BoundedRingBuffer healers;
+    private final BoundedRingBuffer dps;
+    private final Object matchLock = new Object();
+    private final MatchmakingMetrics metrics;
+    private final long[] polled = new long[2]; // guarded by matchLock
+
+    /**
+     * Creates a ConcurrentQueueManager holding -Dlfg.queue.capacity players per role
+     * (default 65536).
+     * @param metrics Receives queue-wait times (may be null).
+     * @return The queue.
+     */
+    public static ConcurrentQueueManager fromSystemProperties(MatchmakingMetrics metrics) {
+        return new ConcurrentQueueManager(Math.max(1, Integer.getInteger("lfg.queue.capacity", DEFAULT_CAPACITY)),
+                metrics);
+    }
+
+    /**
+     * Constructs a ConcurrentQueueManager with the default capacity per role.
+     */
+    public ConcurrentQueueManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a ConcurrentQueueManager.
+     * @param capacityPerRole Maximum number of queued players per role (rounded up to a power of two).
+     */
+    public ConcurrentQueueManager(int capacityPerRole) {
+        this(capacityPerRole, null);
+    }
+
+    /**
+     * Constructs a ConcurrentQueueManager.
+     * @param capacityPerRole Maximum number of queued players per role (rounded up to a power of two).
+     * @param metrics Receives queue-wait times when parties are formed (may be null).
+     */
+    public ConcurrentQueueManager(int capacityPerRole, MatchmakingMetrics metrics) {
+        this.metrics = metrics;
+        tanks = new BoundedRingBuffer(capacityPerRole);
+        healers = new BoundedRingBuffer(capacityPerRole);
+        dps = new BoundedRingBuffer(capacityPerRole);
+    }
+
+    @Override
+    public boolean addPlayer(String role, int id) {
+        long now = System.nanoTime();
+        if (role.equals("Tank")) {
+            return tanks.offer(id, now);
+        } else if (role.equals("Healer")) {
+            return healers.offer(id, now);
+        } else if (role.equals("DPS")) {
+            return dps.offer(id, now);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean canFormParty() {
+        return tanks.size() >= 1 && healers.size() >= 1 && dps.size() >= 3;
+    }
+
+    @Override
+    public int takeParties(PartyBatch batch, int maxParties) {
+        // Matchers take this lock so two of them cannot split the last players between
+        // half-formed parties; producers never touch it.
+        synchronized (matchLock) {
+            int count = Math.min(Math.min(maxParties, batch.remaining()),
+                    Math.min(Math.min(tanks.size(), healers.size()), dps.size() / 3));
+            long now = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                batch.addParty(take(tanks, 0, now), take(healers, 1, now),
+                        take(dps, 2, now), take(dps, 2, now), take(dps, 2, now));
+            }
+            return Math.max(count, 0);
+        }
+    }
+
+    /**
+     * Polls a player that is known to be claimed, waiting out a producer that is mid-publish,
+     * and records how long the player waited. Callers hold matchLock.
+     */
+    private int take(BoundedRingBuffer queue, int roleIndex, long now) {
+        while (!queue.poll(polled)) {
+            Thread.onSpinWait();
+        }
+        if (metrics != null) {
+            metrics.recordQueueWait(roleIndex, now - polled[1]);
+        }
+        return (int) polled[0];
+    }
+
+    @Override
+    public String getLeftoverPlayers() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Leftover Tanks: ").append(tanks.size()).append("\n");
+        sb.append("Leftover Healers: ").append(healers.size()).append("\n");
+        sb.append("Leftover DPS: ").append(dps.size()).append("\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,383 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Memory-mapped checkpoint of queue and dungeon state. The file holds two slots
+ * that are written alternately; a slot's sequence number is cleared before its body
+ * is touched and set again once the body is complete, so after a crash at least one
+ * slot is whole and the one with the higher sequence number is used.
+ * <p>
+ * Writes are incremental: each slot remembers what it last held, and only dungeon
+ * records that changed since then are rewritten (the queue section is rewritten
+ * only when the queue changed). Slots hold records for dungeons 1..highest ID in the
+ * pool, not the whole pool limit, and grow with it; each slot is mapped on its own.
+ * <pre>
+ * file header (32 bytes):  int magic "LFGC", short version, short pad,
+ *                          int maxDungeons, int queueCapacity, long slotSize,
+ *                          int dungeonCapacity, int reserved
+ * slot header (64 bytes):  long sequence (0 = being written), long takenMillis,
+ *                          int minTime, int maxTime, int partyCount, int queued,
+ *                          int dungeons (records in use), ...
+ * dungeon record (48 bytes, one per dungeon):
+ *                          int partiesServed, int partyInside, long totalTimeServed,
+ *                          long endMillis (0 = idle), int clearTime, byte nameLength, byte[19] name
+ * queue entry (16 bytes):  int role (0..2, or a role mask 3/5/6/7 for flex players),
+ *                          int id, long enqueuedMillis
+ * </pre>
+ */
+public class DungeonCheckpoint {
+    public static final int MAGIC = 0x4C464743; // "LFGC"
+    public static final short VERSION = 2;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int FILE_HEADER_SIZE = 32;
+    private static final int SLOT_HEADER_SIZE = 64;
+    private static final int DUNGEON_RECORD_SIZE = 48;
+    private static final int QUEUE_ENTRY_SIZE = 16;
+    private static final int MAX_NAME_LENGTH = 19;
+
+    private final Path path;
+    private final boolean sync;
+    private final int maxDungeons;
+    private int queueCapacity;
+    private int dungeonCapacity;
+    private long slotSize;
+    private FileChannel channel;
+    private final MappedByteBuffer[] slots = new MappedByteBuffer[2];
+    private long sequence;
+    // What each slot held after its last write; reused from one write to the next.
+    private final State[] written = {new State(0), new State(0)};
+    private final boolean[] writtenValid = new boolean[2];
+
+    /**
+     * Everything needed to resume: dungeon table, in-flight runs and queued players.
+     * Dungeon arrays are indexed by dungeon ID - 1 and hold the first {@link #dungeons} IDs.
+     */
+    public static final class State {
+        public int maxDungeons;
+        public int dungeons;
+        public int minTime;
+        public int maxTime;
+        public int partyCount;
+        public long takenMillis;
+        public String[] names = new String[0];
+        public int[] partiesServed = new int[0];
+        public long[] totalTimeServed = new long[0];
+        public int[] partyInside = new int[0];
+        public long[] endMillis = new long[0];
+        public int[] clearTime = new int[0];
+        public int queued;
+        public int[] queueRoles = new int[0];
+        public int[] queueIDs = new int[0];
+        public long[] queueEnqueuedMillis = new long[0];
+
+        /**
+         * @param maxDungeons Size limit of the pool the state covers; dungeon records are
+         *                    added with {@link #ensureDungeonCapacity} as the pool grows.
+         */
+        public State(int maxDungeons) {
+            this.maxDungeons = maxDungeons;
+        }
+
+        /**
+         * Makes room for the records of dungeons 1..capacity.
+         * @param capacity Number of dungeon records needed.
+         */
+        public void ensureDungeonCapacity(int capacity) {
+            if (partiesServed.length >= capacity) return;
+            int grown = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, 2L * partiesServed.length));
+            names = Arrays.copyOf(names, grown);
+            partiesServed = Arrays.copyOf(partiesServed, grown);
+            totalTimeServed = Arrays.copyOf(totalTimeServed, grown);
+            partyInside = Arrays.copyOf(partyInside, grown);
+            endMillis = Arrays.copyOf(endMillis, grown);
+            clearTime = Arrays.copyOf(clearTime, grown);
+        }
+
+        /**
+         * Makes room for at least the given number of queued players.
+         * @param capacity Number of queue entries needed.
+         */
+        public void ensureQueueCapacity(int capacity) {
+            if (queueIDs.length >= capacity) return;
+            int grown = Math.max(capacity, queueIDs.length * 2);
+            queueRoles = Arrays.copyOf(queueRoles, grown);
+            queueIDs = Arrays.copyOf(queueIDs, grown);
+            queueEnqueuedMillis = Arrays.copyOf(queueEnqueuedMillis, grown);
+        }
+
+        /**
+         * @return The number of dungeons with a run in progress.
+         */
+        public int getRunsInProgress() {
+            int runs = 0;
+            for (int i = 0; i < dungeons; i++) {
+                if (endMillis[i] != 0) runs++;
+            }
+            return runs;
+        }
+
+        /**
+         * Makes this state a copy of another, reusing its arrays when they are large enough.
+         */
+        private void copyFrom(State other) {
+            maxDungeons = other.maxDungeons;
+            dungeons = other.dungeons;
+            minTime = other.minTime;
+            maxTime = other.maxTime;
+            partyCount = other.partyCount;
+            takenMillis = other.takenMillis;
+            ensureDungeonCapacity(dungeons);
+            System.arraycopy(other.names, 0, names, 0, dungeons);
+            System.arraycopy(other.partiesServed, 0, partiesServed, 0, dungeons);
+            System.arraycopy(other.totalTimeServed, 0, totalTimeServed, 0, dungeons);
+            System.arraycopy(other.partyInside, 0, partyInside, 0, dungeons);
+            System.arraycopy(other.endMillis, 0, endMillis, 0, dungeons);
+            System.arraycopy(other.clearTime, 0, clearTime, 0, dungeons);
+            queued = other.queued;
+            ensureQueueCapacity(queued);
+            System.arraycopy(other.queueRoles, 0, queueRoles, 0, queued);
+            System.arraycopy(other.queueIDs, 0, queueIDs, 0, queued);
+            System.arraycopy(other.queueEnqueuedMillis, 0, queueEnqueuedMillis, 0, queued);
+        }
+
+        private boolean sameDungeon(State other, int i) {
+            return partiesServed[i] == other.partiesServed[i] && totalTimeServed[i] == other.totalTimeServed[i]
+                    && partyInside[i] == other.partyInside[i] && endMillis[i] == other.endMillis[i]
+                    && clearTime[i] == other.clearTime[i] && Objects.equals(names[i], other.names[i]);
+        }
+
+        private boolean sameQueue(State other) {
+            return queued == other.queued
+                    && Arrays.equals(queueRoles, 0, queued, other.queueRoles, 0, queued)
+                    && Arrays.equals(queueIDs, 0, queued, other.queueIDs, 0, queued)
+                    && Arrays.equals(queueEnqueuedMillis, 0, queued, other.queueEnqueuedMillis, 0, queued);
+        }
+    }
+
+    /**
+     * Prepares a checkpoint file. Nothing is written until the first {@link #write}, so an
+     * existing checkpoint stays readable until it is replaced by a complete one.
+     * @param path The checkpoint file.
+     * @param maxDungeons Number of dungeons to checkpoint.
+     * @param sync True to force each checkpoint to the storage device (survives power loss,
+     *             not only a crashed process).
+     */
+    public DungeonCheckpoint(Path path, int maxDungeons, boolean sync) {
+        this.path = path;
+        this.sync = sync;
+        this.maxDungeons = maxDungeons;
+    }
+
+    /**
+     * Writes a checkpoint into the older slot and makes it the current one.
+     * @param state The state to write (maxDungeons must match this file).
+     * @throws IOException if the file cannot be created, grown or mapped.
+     */
+    public void write(State state) throws IOException {
+        if (slots[0] == null || state.queued > queueCapacity || state.dungeons > dungeonCapacity) {
+            recreate(grow(queueCapacity, state.queued, 1024),
+                    Math.min(maxDungeons, grow(dungeonCapacity, state.dungeons, 64)), state);
+        } else {
+            writeSlot(state);
+        }
+    }
+
+    private static int grow(int capacity, int needed, int minimum) {
+        if (needed <= capacity) return capacity;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(minimum, Math.max(needed, 2L * capacity)));
+    }
+
+    private void writeSlot(State state) {
+        int slot = (int) (sequence & 1);
+        State previous = writtenValid[slot] ? written[slot] : null;
+        MappedByteBuffer map = slots[slot];
+
+        // Invalidate the slot while it is being changed.
+        map.putLong(0, 0L);
+        force(map);
+
+        map.putLong(8, state.takenMillis);
+        map.putInt(16, state.minTime);
+        map.putInt(20, state.maxTime);
+        map.putInt(24, state.partyCount);
+        map.putInt(28, state.queued);
+        map.putInt(32, state.dungeons);
+
+        int dungeons = SLOT_HEADER_SIZE;
+        for (int i = 0; i < state.dungeons; i++) {
+            if (previous != null && i < previous.dungeons && state.sameDungeon(previous, i)) continue;
+            int at = dungeons + i * DUNGEON_RECORD_SIZE;
+            map.putInt(at, state.partiesServed[i]);
+            map.putInt(at + 4, state.partyInside[i]);
+            map.putLong(at + 8, state.totalTimeServed[i]);
+            map.putLong(at + 16, state.endMillis[i]);
+            map.putInt(at + 24, state.clearTime[i]);
+            byte[] name = state.names[i] == null ? new byte[0] : state.names[i].getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(name.length, MAX_NAME_LENGTH);
+            map.put(at + 28, (byte) length);
+            map.put(at + 29, name, 0, length);
+        }
+
+        if (previous == null || !state.sameQueue(previous)) {
+            int queue = dungeons + dungeonCapacity * DUNGEON_RECORD_SIZE;
+            for (int i = 0; i < state.queued; i++) {
+                int at = queue + i * QUEUE_ENTRY_SIZE;
+                map.putInt(at, state.queueRoles[i]);
+                map.putInt(at + 4, state.queueIDs[i]);
+                map.putLong(at + 8, state.queueEnqueuedMillis[i]);
+            }
+        }
+        force(map);
+
+        map.putLong(0, ++sequence);
+        force(map);
+        written[slot].copyFrom(state);
+        writtenValid[slot] = true;
+    }
+
+    /**
+     * Deletes the checkpoint file, e.g. after a run finished cleanly.
+     * @throws IOException if the file cannot be deleted.
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Closes the file; the last checkpoint stays on disk.
+     * @throws IOException if closing fails.
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            slots[0] = null;
+            slots[1] = null;
+        }
+    }
+
+    /**
+     * Reads the newest complete checkpoint from a file.
+     * @param path The checkpoint file.
+     * @return The state, or null if the file does not exist or holds no complete checkpoint.
+     * @throws IOException if the file cannot be read or is not a checkpoint.
+     */
+    public static State load(Path path) throws IOException {
+        if (!Files.exists(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < FILE_HEADER_SIZE) return null;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_HEADER_SIZE);
+            header.order(ORDER);
+            if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION) {
+                throw new IOException("Not a dungeon checkpoint: " + path);
+            }
+            int maxDungeons = header.getInt(8);
+            long slotSize = header.getLong(16);
+            int dungeonCapacity = header.getInt(24);
+
+            MappedByteBuffer map = null;
+            long bestSequence = 0;
+            for (int slot = 0; slot < 2; slot++) {
+                MappedByteBuffer candidate = channel.map(FileChannel.MapMode.READ_ONLY,
+                        FILE_HEADER_SIZE + slot * slotSize, slotSize);
+                candidate.order(ORDER);
+                long sequence = candidate.getLong(0);
+                if (sequence > bestSequence) {
+                    bestSequence = sequence;
+                    map = candidate;
+                }
+            }
+            if (map == null) return null;
+
+            State state = new State(maxDungeons);
+            state.takenMillis = map.getLong(8);
+            state.minTime = map.getInt(16);
+            state.maxTime = map.getInt(20);
+            state.partyCount = map.getInt(24);
+            state.queued = map.getInt(28);
+            state.dungeons = map.getInt(32);
+            state.ensureDungeonCapacity(state.dungeons);
+
+            int dungeons = SLOT_HEADER_SIZE;
+            byte[] name = new byte[MAX_NAME_LENGTH];
+            for (int i = 0; i < state.dungeons; i++) {
+                int at = dungeons + i * DUNGEON_RECORD_SIZE;
+                state.partiesServed[i] = map.getInt(at);
+                state.partyInside[i] = map.getInt(at + 4);
+                state.totalTimeServed[i] = map.getLong(at + 8);
+                state.endMillis[i] = map.getLong(at + 16);
+                state.clearTime[i] = map.getInt(at + 24);
+                int length = map.get(at + 28);
+                map.get(at + 29, name, 0, length);
+                state.names[i] = length == 0 ? null : new String(name, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int queue = dungeons + dungeonCapacity * DUNGEON_RECORD_SIZE;
+            state.ensureQueueCapacity(state.queued);
+            for (int i = 0; i < state.queued; i++) {
+                int at = queue + i * QUEUE_ENTRY_SIZE;
+                state.queueRoles[i] = map.getInt(at);
+                state.queueIDs[i] = map.getInt(at + 4);
+                state.queueEnqueuedMillis[i] = map.getLong(at + 8);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Builds a new file with room for the given number of queue entries and dungeon records
+     * per slot and the state already in it, then moves it over the old one, so a crash at
+     * any point leaves a complete checkpoint on disk.
+     */
+    private void recreate(int queueEntries, int dungeonRecords, State state) throws IOException {
+        close();
+        long size = SLOT_HEADER_SIZE + (long) dungeonRecords * DUNGEON_RECORD_SIZE
+                + (long) queueEntries * QUEUE_ENTRY_SIZE;
+        // Each slot is one mapping, addressed with int offsets.
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Checkpoint slot for " + dungeonRecords + " dungeons and " + queueEntries
+                    + " queued players would exceed 2 GB.");
+        }
+        queueCapacity = queueEntries;
+        dungeonCapacity = dungeonRecords;
+        slotSize = size;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_SIZE);
+        header.order(ORDER);
+        header.putInt(0, MAGIC);
+        header.putShort(4, VERSION);
+        header.putInt(8, maxDungeons);
+        header.putInt(12, queueCapacity);
+        header.putLong(16, slotSize);
+        header.putInt(24, dungeonCapacity);
+        force(header);
+        for (int slot = 0; slot < 2; slot++) {
+            slots[slot] = channel.map(FileChannel.MapMode.READ_WRITE, FILE_HEADER_SIZE + slot * slotSize, slotSize);
+            slots[slot].order(ORDER);
+            writtenValid[slot] = false;
+        }
+        writeSlot(state);
+        // The mapping follows the file, so writing continues through it after the move.
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void force(MappedByteBuffer map) {
+        if (sync) map.force();
+    }
+}
@@ -0,0 +1,525 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free allocator for dungeon IDs 1..size, where the size can grow up to a fixed
+ * capacity and shrink again.
+ * IDs live in a bitmap (one bit per dungeon, set = in use) next to a free counter.
+ * A caller first reserves one unit of the counter, then claims a clear bit with a
+ * single CAS, so a reserved slot can never be lost. Only callers that block for a
+ * free ID, and resizes, ever touch a monitor.
+ * <p>
+ * The bitmap is kept in chunks of 65,536 IDs that are created as the pool grows and
+ * dropped when it shrinks, so memory follows the pool size rather than the capacity.
+ * Bits above the current size stay set, so they are never handed out. When no ID is
+ * free the pool grows by an eighth (at least 64 IDs) up to the capacity;
+ * {@link #shrink} retires free IDs from the top.
+ * <p>
+ * Which free ID is handed out follows a {@link PlacementPolicy}. The bitmap policies only
+ * pick where the scan starts. LEAST_LOADED keeps the free IDs in a {@link DungeonLoadHeap}
+ * instead; its bits then only change under the heap's lock, so the heap and the bitmap
+ * always agree.
+ */
+public class DungeonIdAllocator {
+    private static final int CHUNK_BITS = 10; // 1024 words = 65,536 IDs per chunk
+    private static final int CHUNK_WORDS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_WORDS - 1;
+    private static final int MIN_GROWTH = 64;
+
+    /**
+     * Notified when the pool changes size.
+     */
+    public interface ResizeListener {
+        /**
+         * Called under the resize lock: before the new IDs of a larger pool can be taken,
+         * and after the retired IDs of a smaller pool are gone.
+         * @param oldSize The previous size.
+         * @param newSize The new size.
+         */
+        void resized(int oldSize, int newSize);
+    }
+
+    private final int capacity;
+    private final AtomicReferenceArray<AtomicLongArray> chunks;
+    private final AtomicInteger free = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object waitLock = new Object();
+    private final Object resizeLock = new Object();
+    private volatile int size = 0;
+    private volatile int hint = 0; // word where the last free ID was found
+    private volatile int cursor = 1; // ROUND_ROBIN: ID where the next scan starts
+    private final PlacementPolicy placement;
+    private final DungeonLoadHeap loads; // LEAST_LOADED only
+    private ResizeListener resizeListener;
+
+    /**
+     * Constructs a fixed-size DungeonIdAllocator with every ID free.
+     * @param capacity Number of dungeon IDs (IDs are 1..capacity).
+     */
+    public DungeonIdAllocator(int capacity) {
+        this(capacity, capacity);
+    }
+
+    /**
+     * Constructs a DungeonIdAllocator that starts with initialSize free IDs and grows on demand.
+     * @param capacity Maximum number of dungeon IDs (IDs are 1..capacity).
+     * @param initialSize Number of IDs created up front.
+     */
+    public DungeonIdAllocator(int capacity, int initialSize) {
+        this(capacity, initialSize, PlacementPolicy.FIRST_FREE);
+    }
+
+    /**
+     * Constructs a DungeonIdAllocator that starts with initialSize free IDs and grows on demand.
+     * @param capacity Maximum number of dungeon IDs (IDs are 1..capacity).
+     * @param initialSize Number of IDs created up front.
+     * @param placement Which free ID is handed out.
+     */
+    public DungeonIdAllocator(int capacity, int initialSize, PlacementPolicy placement) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative.");
+        }
+        this.capacity = capacity;
+        this.placement = placement;
+        this.loads = placement == PlacementPolicy.LEAST_LOADED ? new DungeonLoadHeap() : null;
+        int wordCount = (int) (((long) capacity + 63) >>> 6);
+        this.chunks = new AtomicReferenceArray<>(Math.max(1, (wordCount + CHUNK_MASK) >>> CHUNK_BITS));
+        ensureSize(initialSize);
+    }
+
+    /**
+     * Sets the listener told about resizes (growth on demand included).
+     * @param resizeListener The listener, or null.
+     */
+    public void setResizeListener(ResizeListener resizeListener) {
+        synchronized (resizeLock) {
+            this.resizeListener = resizeListener;
+        }
+    }
+
+    /**
+     * Takes a free ID without blocking, growing the pool if none is free.
+     * @return The ID, or 0 if none is free and the pool is at capacity.
+     */
+    public int tryAcquire() {
+        return tryAcquireFor(0);
+    }
+
+    /**
+     * Takes a free ID without blocking, growing the pool if none is free.
+     * @param key Affinity key (AFFINITY placement only): equal keys prefer the same ID.
+     * @return The ID, or 0 if none is free and the pool is at capacity.
+     */
+    public int tryAcquireFor(long key) {
+        while (true) {
+            int f = free.get();
+            if (f == 0) {
+                if (!grow()) return 0;
+            } else if (free.compareAndSet(f, f - 1)) {
+                return claim(key);
+            }
+        }
+    }
+
+    /**
+     * Takes a specific ID if it is free, e.g. to put back a run restored from a checkpoint.
+     * @param id The ID to take.
+     * @return True if the ID was free and is now taken; false if it is in use or above the size.
+     * @throws IllegalArgumentException if the ID is out of range.
+     */
+    public boolean tryAcquire(int id) {
+        if (id < 1 || id > capacity) {
+            throw new IllegalArgumentException("Dungeon ID out of range: " + id);
+        }
+        if (id > size) return false;
+        int f;
+        do {
+            f = free.get();
+            if (f == 0) return false;
+        } while (!free.compareAndSet(f, f - 1));
+        if (loads != null) {
+            synchronized (loads) {
+                if (setBit(id)) {
+                    loads.remove(id);
+                    return true;
+                }
+            }
+        } else if (setBit(id)) {
+            return true;
+        }
+        // Already taken: hand the reserved unit back.
+        free.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Takes a free ID, waiting until one is released.
+     * @return The ID.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int acquire() throws InterruptedException {
+        return acquireFor(0);
+    }
+
+    /**
+     * Takes a free ID, waiting until one is released.
+     * @param key Affinity key (AFFINITY placement only): equal keys prefer the same ID.
+     * @return The ID.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int acquireFor(long key) throws InterruptedException {
+        while (true) {
+            int id = tryAcquireFor(key);
+            if (id != 0) return id;
+            synchronized (waitLock) {
+                waiters.incrementAndGet();
+                try {
+                    while (free.get() == 0) {
+                        waitLock.wait();
+                    }
+                } finally {
+                    waiters.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a free ID, waiting up to the given time for one to be released.
+     * @param timeout Maximum time to wait.
+     * @param unit Unit of the timeout.
+     * @return The ID, or 0 if none became free in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            int id = tryAcquire();
+            if (id != 0) return id;
+            synchronized (waitLock) {
+                waiters.incrementAndGet();
+                try {
+                    while (free.get() == 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) return 0;
+                        TimeUnit.NANOSECONDS.timedWait(waitLock, remaining);
+                    }
+                } finally {
+                    waiters.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks for one free ID, then takes as many more as are free right now.
+     * @param out Receives the IDs.
+     * @param max Maximum number of IDs to take (at most out.length).
+     * @return Number of IDs written to out (at least 1 if max is at least 1).
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int acquireUpTo(int[] out, int max) throws InterruptedException {
+        return acquireUpTo(out, max, null);
+    }
+
+    /**
+     * Blocks for one free ID, then takes as many more as are free right now.
+     * @param out Receives the IDs.
+     * @param max Maximum number of IDs to take (at most out.length).
+     * @param keys Affinity key for each ID in out (may be null).
+     * @return Number of IDs written to out (at least 1 if max is at least 1).
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int acquireUpTo(int[] out, int max, long[] keys) throws InterruptedException {
+        if (max <= 0) return 0;
+        out[0] = acquireFor(keys == null ? 0 : keys[0]);
+        int count = 1;
+        while (count < max) {
+            int id = tryAcquireFor(keys == null ? 0 : keys[count]);
+            if (id == 0) break;
+            out[count++] = id;
+        }
+        return count;
+    }
+
+    /**
+     * Returns an ID to the pool and wakes a waiting caller if there is one.
+     * @param id The ID to release.
+     * @throws IllegalArgumentException if the ID is out of range or not in use.
+     */
+    public void release(int id) {
+        release(id, 0);
+    }
+
+    /**
+     * Returns an ID to the pool after a run and wakes a waiting caller if there is one.
+     * @param id The ID to release.
+     * @param served Time the run took, added to the dungeon's load (LEAST_LOADED only).
+     * @throws IllegalArgumentException if the ID is out of range or not in use.
+     */
+    public void release(int id, long served) {
+        if (id < 1 || id > size) {
+            throw new IllegalArgumentException("Dungeon ID out of range: " + id);
+        }
+        if (loads != null) {
+            synchronized (loads) {
+                clearBit(id);
+                loads.addLoad(id, served);
+                loads.add(id);
+            }
+        } else {
+            clearBit(id);
+        }
+        // Prefer low IDs, so the top of the pool drains and can be retired.
+        int wordIndex = (id - 1) >>> 6;
+        if (wordIndex < hint) hint = wordIndex;
+        free.incrementAndGet();
+        if (waiters.get() > 0) {
+            synchronized (waitLock) {
+                waitLock.notify();
+            }
+        }
+    }
+
+    /**
+     * Adds time served to a dungeon's load without a run, e.g. for runs restored from a
+     * checkpoint. Does nothing unless the placement is LEAST_LOADED.
+     * @param id The dungeon ID.
+     * @param served Time served to add.
+     */
+    public void addLoad(int id, long served) {
+        if (loads != null) {
+            synchronized (loads) {
+                loads.addLoad(id, served);
+            }
+        }
+    }
+
+    /**
+     * Grows the pool to at least the given size (never beyond the capacity).
+     * @param minSize The size wanted.
+     */
+    public void ensureSize(int minSize) {
+        synchronized (resizeLock) {
+            int target = Math.min(capacity, minSize);
+            if (target > size) {
+                growTo(target);
+            }
+        }
+    }
+
+    /**
+     * Shrinks the pool toward the given size by retiring free IDs from the top; stops at
+     * the first ID that is in use.
+     * @param targetSize The size wanted.
+     * @return The new size.
+     */
+    public int shrink(int targetSize) {
+        synchronized (resizeLock) {
+            int oldSize = size;
+            int newSize = oldSize;
+            while (newSize > Math.max(0, targetSize) && tryAcquire(newSize)) {
+                newSize--;
+            }
+            if (newSize == oldSize) return oldSize;
+            // The retired bits stay set, as everything above the size is.
+            size = newSize;
+            int keepChunks = (int) ((((long) newSize + 63) >>> 6) + CHUNK_MASK) >>> CHUNK_BITS;
+            int oldChunks = (int) ((((long) oldSize + 63) >>> 6) + CHUNK_MASK) >>> CHUNK_BITS;
+            for (int c = keepChunks; c < oldChunks; c++) {
+                chunks.set(c, null);
+            }
+            if (resizeListener != null) {
+                resizeListener.resized(oldSize, newSize);
+            }
+            return newSize;
+        }
+    }
+
+    /**
+     * Grows the pool by one step if no ID is free.
+     * @return True if an ID may be free now; false if the pool is full and at capacity.
+     */
+    private boolean grow() {
+        synchronized (resizeLock) {
+            if (free.get() > 0) return true;
+            if (size >= capacity) return false;
+            growTo((int) Math.min(capacity, (long) size + Math.max(MIN_GROWTH, size >>> 3)));
+            return true;
+        }
+    }
+
+    /**
+     * Clears the bits of IDs size+1..newSize and then publishes them as free.
+     * Called under the resize lock.
+     */
+    private void growTo(int newSize) {
+        int oldSize = size;
+        if (resizeListener != null) {
+            resizeListener.resized(oldSize, newSize);
+        }
+        for (int id = oldSize + 1; id <= newSize; ) {
+            int wordIndex = (id - 1) >>> 6;
+            AtomicLongArray chunk = chunks.get(wordIndex >>> CHUNK_BITS);
+            if (chunk == null) {
+                chunk = new AtomicLongArray(CHUNK_WORDS);
+                for (int i = 0; i < CHUNK_WORDS; i++) {
+                    chunk.set(i, -1L);
+                }
+                chunks.set(wordIndex >>> CHUNK_BITS, chunk);
+            }
+            int last = (int) Math.min(newSize, ((long) wordIndex + 1) << 6);
+            long mask = (-1L >>> (63 - ((last - 1) & 63))) & (-1L << ((id - 1) & 63));
+            int index = wordIndex & CHUNK_MASK;
+            long word;
+            do {
+                word = chunk.get(index);
+            } while (!chunk.compareAndSet(index, word, word & ~mask));
+            id = last + 1;
+        }
+        if (loads != null) {
+            synchronized (loads) {
+                for (int newID = oldSize + 1; newID <= newSize; newID++) {
+                    loads.add(newID);
+                }
+            }
+        }
+        size = newSize;
+        free.addAndGet(newSize - oldSize);
+        if (waiters.get() > 0) {
+            synchronized (waitLock) {
+                waitLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Claims a free ID by the placement policy after a unit of the free counter has been
+     * reserved.
+     */
+    private int claim(long key) {
+        switch (placement) {
+            case LEAST_LOADED:
+                synchronized (loads) {
+                    // Every free ID is in the heap, and a reserved unit keeps one there for us.
+                    int id = loads.poll();
+                    setBit(id);
+                    return id;
+                }
+            case ROUND_ROBIN: {
+                int start = cursor;
+                int id = claimFrom(start > size ? 1 : start);
+                cursor = id + 1;
+                return id;
+            }
+            case AFFINITY: {
+                long h = key * 0x9E3779B97F4A7C15L;
+                return claimFrom(1 + (int) Long.remainderUnsigned(h ^ (h >>> 32), Math.max(1, size)));
+            }
+            default:
+                return claimFrom((hint << 6) + 1);
+        }
+    }
+
+    /**
+     * Claims the first clear bit at or after startID, wrapping around. One is guaranteed to
+     * exist below the size, so the scan retries until it wins a CAS.
+     */
+    private int claimFrom(int startID) {
+        while (true) {
+            int wordCount = (int) (((long) size + 63) >>> 6);
+            int first = (int) (((long) startID - 1) >>> 6) % wordCount;
+            // Bits below the start in its own word are only tried after wrapping around.
+            long skipped = (1L << ((startID - 1) & 63)) - 1;
+            for (int n = 0; n <= wordCount; n++) {
+                int wordIndex = (first + n) % wordCount;
+                AtomicLongArray chunk = chunks.get(wordIndex >>> CHUNK_BITS);
+                if (chunk == null) continue;
+                int index = wordIndex & CHUNK_MASK;
+                long skip = n == 0 ? skipped : 0;
+                long word = chunk.get(index);
+                while ((word | skip) != -1L) {
+                    int bit = Long.numberOfTrailingZeros(~(word | skip));
+                    if (chunk.compareAndSet(index, word, word | (1L << bit))) {
+                        hint = wordIndex;
+                        return (wordIndex << 6) + bit + 1;
+                    }
+                    word = chunk.get(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the bit of an ID.
+     * @return False if it was already set.
+     */
+    private boolean setBit(int id) {
+        AtomicLongArray chunk = chunks.get((id - 1) >>> 6 >>> CHUNK_BITS);
+        int index = ((id - 1) >>> 6) & CHUNK_MASK;
+        long mask = 1L << ((id - 1) & 63);
+        long word;
+        do {
+            word = chunk.get(index);
+            if ((word & mask) != 0) return false;
+        } while (!chunk.compareAndSet(index, word, word | mask));
+        return true;
+    }
+
+    /**
+     * Clears the bit of an ID that is in use.
+     */
+    private void clearBit(int id) {
+        AtomicLongArray chunk = chunks.get((id - 1) >>> 6 >>> CHUNK_BITS);
+        int index = ((id - 1) >>> 6) & CHUNK_MASK;
+        long mask = 1L << ((id - 1) & 63);
+        long word;
+        do {
+            word = chunk.get(index);
+            if ((word & mask) == 0) {
+                throw new IllegalArgumentException("Dungeon ID " + id + " is not in use.");
+            }
+        } while (!chunk.compareAndSet(index, word, word & ~mask));
+    }
+
+    /**
+     * @return Number of IDs currently free.
+     */
+    public int available() {
+        return free.get();
+    }
+
+    /**
+     * @return True if every ID is free (two reads, no locking).
+     */
+    public boolean allFree() {
+        return free.get() == size;
+    }
+
+    /**
+     * @return The number of IDs currently in the pool.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return How free IDs are handed out.
+     */
+    public PlacementPolicy getPlacement() {
+        return placement;
+    }
+
+    /**
+     * @return The maximum number of IDs.
+     */
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -1,14 +1,17 @@
 // Programmed by: Jasper Adrada
 
+package lfgs;
+
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Simulates a dungeon instance that runs for a random duration between t1 and t2 seconds.
  */
-public class DungeonInstance extends Thread {
+public class DungeonInstance implements Runnable {
     private int dungeonID;  // Unique ID for the dungeon.
     private int t1, t2;     // Minimum and maximum dungeon completion time (in seconds).
-    private int clearTime;  // Randomly determined runtime (in seconds).
+    private int clearTime;  // Randomly determined runtime (in seconds), rolled on construction.
 
     /**
      * Constructs a DungeonInstance.
@@ -17,9 +20,21 @@ public class DungeonInstance extends Thread {
      * @param t2 Maximum completion time.
      */
     public DungeonInstance(int dungeonID, int t1, int t2) {
+        this(dungeonID, t1, t2, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Constructs a DungeonInstance whose clear time is drawn from the given source.
+     * @param dungeonID Unique ID for this dungeon.
+     * @param t1 Minimum completion time.
+     * @param t2 Maximum completion time.
+     * @param random Random source used to roll the clear time (e.g. a seeded Random for reproducible runs).
+     */
+    public DungeonInstance(int dungeonID, int t1, int t2, Random random) {
         this.dungeonID = dungeonID;
         this.t1 = t1;
         this.t2 = t2;
+        this.clearTime = t1 + random.nextInt(t2 - t1 + 1);
     }
 
     /**
@@ -27,9 +42,8 @@ public class DungeonInstance extends Thread {
      */
     @Override
     public void run() {
-        clearTime = ThreadLocalRandom.current().nextInt(t1, t2 + 1);
         try {
-            Thread.sleep(clearTime * 1000);
+            Thread.sleep(clearTime * 1000L);
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,137 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of dungeon IDs keyed by the time each dungeon has served,
+ * ties going to the lower ID. Besides taking the minimum it can remove any ID in
+ * O(log n) through a position index, which the allocator needs when a specific ID is
+ * taken or retired. Arrays grow with the highest ID seen. Not thread-safe.
+ */
+public class DungeonLoadHeap {
+    private int[] heap = new int[64];
+    private int[] position = new int[65]; // by ID; 0 = not in the heap, else index + 1
+    private long[] load = new long[65];   // by ID, kept while the ID is out of the heap
+    private int size = 0;
+
+    /**
+     * Adds an ID to the heap.
+     * @param id The dungeon ID (1 or more).
+     * @throws IllegalStateException if the ID is already in the heap.
+     */
+    public void add(int id) {
+        ensureId(id);
+        if (position[id] != 0) throw new IllegalStateException("Dungeon ID " + id + " is already queued.");
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        heap[size] = id;
+        position[id] = size + 1;
+        siftUp(size++);
+    }
+
+    /**
+     * Removes the ID with the least load.
+     * @return The ID, or 0 if the heap is empty.
+     */
+    public int poll() {
+        if (size == 0) return 0;
+        int id = heap[0];
+        removeAt(0);
+        return id;
+    }
+
+    /**
+     * Removes an ID if it is in the heap.
+     * @param id The dungeon ID.
+     * @return True if it was removed.
+     */
+    public boolean remove(int id) {
+        if (id >= position.length || position[id] == 0) return false;
+        removeAt(position[id] - 1);
+        return true;
+    }
+
+    /**
+     * Adds to the load of an ID, moving it in the heap if it is there.
+     * @param id The dungeon ID.
+     * @param amount Time served to add.
+     */
+    public void addLoad(int id, long amount) {
+        ensureId(id);
+        load[id] += amount;
+        if (position[id] != 0) {
+            siftUp(position[id] - 1);
+            siftDown(position[id] - 1);
+        }
+    }
+
+    /**
+     * @param id The dungeon ID.
+     * @return The load recorded for the ID.
+     */
+    public long getLoad(int id) {
+        return id < load.length ? load[id] : 0;
+    }
+
+    /**
+     * @return Number of IDs in the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void removeAt(int index) {
+        int id = heap[index];
+        position[id] = 0;
+        size--;
+        if (index == size) return;
+        int moved = heap[size];
+        move(moved, index);
+        siftUp(index);
+        siftDown(position[moved] - 1);
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(id, heap[parent])) break;
+            move(heap[parent], index);
+            index = parent;
+        }
+        move(id, index);
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], id)) break;
+            move(heap[child], index);
+            index = child;
+        }
+        move(id, index);
+    }
+
+    private void move(int id, int index) {
+        heap[index] = id;
+        position[id] = index + 1;
+    }
+
+    private boolean less(int a, int b) {
+        return load[a] < load[b] || (load[a] == load[b] && a < b);
+    }
+
+    private void ensureId(int id) {
+        if (id >= position.length) {
+            int length = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max((long) id + 1, 2L * position.length));
+            position = Arrays.copyOf(position, length);
+            load = Arrays.copyOf(load, length);
+        }
+    }
+}
@@ -0,0 +1,575 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Manages assignment of parties to dungeon instances.
+ * Reuses dungeon IDs and updates live status accordingly.
+ */
+public class DungeonManager {
+    private int maxDungeons;
+    private int minTime, maxTime;
+    private DungeonIdAllocator dungeonSlots;
+    private DungeonStatus dungeonStatus;
+    private AtomicInteger partyCount;
+    private int idOffset;
+    private volatile RunListener runListener;
+    private ExecutionMode mode;
+    private DungeonScheduler scheduler;
+    private ThreadFactory runThreads;
+    private MatchmakingMetrics metrics;
+    // Wall-clock end and clear time of the run in each dungeon (by local ID), for checkpoints,
+    // in chunks of 65,536 dungeons that follow the pool size.
+    private static final int RUN_CHUNK_BITS = 16;
+    private static final int RUN_CHUNK_MASK = (1 << RUN_CHUNK_BITS) - 1;
+    private long[][] runEnds;
+    private int[][] runClearTimes;
+    private int minPoolSize;
+    private boolean elastic;
+    private PlacementPolicy placement;
+    // Runs start and finish under the read lock; a checkpoint copies the state under the write lock.
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs a DungeonManager using the timer-driven execution mode.
+     * @param maxDungeons Maximum number of concurrent dungeons.
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @param dungeonStatus Reference to the live status updater.
+     */
+    public DungeonManager(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus) {
+        this(maxDungeons, minTime, maxTime, dungeonStatus, ExecutionMode.TIMER);
+    }
+
+    /**
+     * Constructs a DungeonManager.
+     * @param maxDungeons Maximum number of concurrent dungeons.
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @param dungeonStatus Reference to the live status updater.
+     * @param mode How dungeon runs are executed.
+     */
+    public DungeonManager(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus, ExecutionMode mode) {
+        this(maxDungeons, minTime, maxTime, dungeonStatus, mode, null);
+    }
+
+    /**
+     * Constructs a DungeonManager.
+     * @param maxDungeons Maximum number of concurrent dungeons.
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @param dungeonStatus Reference to the live status updater.
+     * @param mode How dungeon runs are executed.
+     * @param metrics Receives slot-wait, run-time and utilization data (may be null).
+     */
+    public DungeonManager(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus, ExecutionMode mode,
+                          MatchmakingMetrics metrics) {
+        this(maxDungeons, minTime, maxTime, dungeonStatus, mode, metrics, 0, new AtomicInteger());
+    }
+
+    /**
+     * Constructs a DungeonManager that owns one slice of a larger dungeon pool.
+     * @param maxDungeons Number of dungeons in this slice.
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @param dungeonStatus Reference to the live status updater.
+     * @param mode How dungeon runs are executed.
+     * @param metrics Receives slot-wait, run-time and utilization data (may be null).
+     * @param idOffset Added to local IDs 1..maxDungeons to get the IDs reported to DungeonStatus.
+     * @param partyCounter Source of party IDs, shared between slices so IDs stay unique.
+     */
+    public DungeonManager(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus, ExecutionMode mode,
+                          MatchmakingMetrics metrics, int idOffset, AtomicInteger partyCounter) {
+        this.maxDungeons = maxDungeons;
+        this.idOffset = idOffset;
+        this.partyCount = partyCounter;
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.setDungeonPool(maxDungeons, this::getBusyDungeons);
+        }
+        this.mode = mode;
+        if (mode == ExecutionMode.TIMER) {
+            this.scheduler = new DungeonScheduler();
+        } else {
+            this.runThreads = mode.threadFactory();
+        }
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.dungeonStatus = dungeonStatus;
+        this.runEnds = new long[(maxDungeons >>> RUN_CHUNK_BITS) + 1][];
+        this.runClearTimes = new int[(maxDungeons >>> RUN_CHUNK_BITS) + 1][];
+
+        // The pool starts with -Dlfg.pool.initial dungeons (default 64), grows when a party finds
+        // none free and shrinks back when mostly idle; -Dlfg.pool.elastic=false creates all up front.
+        this.elastic = Boolean.parseBoolean(System.getProperty("lfg.pool.elastic", "true"));
+        this.minPoolSize = elastic ? Math.min(maxDungeons, Math.max(1, Integer.getInteger("lfg.pool.initial", 64)))
+                : maxDungeons;
+        // -Dlfg.placement=first|roundrobin|leastloaded|affinity picks the dungeon for each party.
+        this.placement = PlacementPolicy.fromString(System.getProperty("lfg.placement", "first"));
+        this.dungeonSlots = new DungeonIdAllocator(maxDungeons, 0, placement);
+        dungeonSlots.setResizeListener(this::poolResized);
+        dungeonSlots.ensureSize(minPoolSize);
+    }
+
+    /**
+     * Checks if all dungeon slots are free.
+     * @return True if all dungeons are available.
+     */
+    public boolean allDungeonsFree() {
+        return dungeonSlots.allFree();
+    }
+
+    /**
+     * @return Maximum number of dungeons in this manager's pool.
+     */
+    public int getMaxDungeons() {
+        return maxDungeons;
+    }
+
+    /**
+     * @return Number of dungeons that currently exist in this manager's pool.
+     */
+    public int getPoolSize() {
+        return dungeonSlots.size();
+    }
+
+    /**
+     * @return Number of dungeons in this manager's pool that are currently running a party.
+     */
+    public int getBusyDungeons() {
+        return dungeonSlots.size() - dungeonSlots.available();
+    }
+
+    /**
+     * Assigns a party to an available dungeon.
+     * @param party Array of player strings forming the party.
+     */
+    public void assignPartyToInstance(String[] party) {
+        int dungeonID = acquire(affinityKey(PartyBatch.playerID(party[0])));
+        if (dungeonID != 0) {
+            enter(dungeonID, partyCount.incrementAndGet());
+        }
+    }
+
+    /**
+     * Assigns a party from a batch to an available dungeon, waiting if none is free,
+     * and records the placement in the batch.
+     * @param batch The batch holding the party.
+     * @param party The party index.
+     */
+    public void assignParty(PartyBatch batch, int party) {
+        int dungeonID = acquire(affinityKey(batch.getLeader(party)));
+        if (dungeonID != 0) {
+            int partyID = partyCount.incrementAndGet();
+            batch.setPlacement(party, dungeonID, partyID);
+            enter(dungeonID, partyID);
+        }
+    }
+
+    /**
+     * Assigns a party to a dungeon only if one is free right now.
+     * @param party Array of player strings forming the party.
+     * @return True if the party was placed; false if every dungeon is busy.
+     */
+    public boolean tryAssignPartyToInstance(String[] party) {
+        int dungeonID = tryAcquire(affinityKey(PartyBatch.playerID(party[0])));
+        if (dungeonID == 0) return false;
+        enter(dungeonID, partyCount.incrementAndGet());
+        return true;
+    }
+
+    /**
+     * Assigns a party from a batch to a dungeon only if one is free right now, and records
+     * the placement in the batch.
+     * @param batch The batch holding the party.
+     * @param party The party index.
+     * @return True if the party was placed; false if every dungeon is busy.
+     */
+    public boolean tryAssignParty(PartyBatch batch, int party) {
+        int dungeonID = tryAcquire(affinityKey(batch.getLeader(party)));
+        if (dungeonID == 0) return false;
+        int partyID = partyCount.incrementAndGet();
+        batch.setPlacement(party, dungeonID, partyID);
+        enter(dungeonID, partyID);
+        return true;
+    }
+
+    /**
+     * Assigns a party whose ID was given out elsewhere (e.g. by a cluster coordinator).
+     * Waits if no dungeon is free.
+     * @param partyID The party identifier.
+     */
+    public void assignPartyWithID(int partyID) {
+        int dungeonID = acquire(partyID);
+        if (dungeonID != 0) {
+            enter(dungeonID, partyID);
+        }
+    }
+
+    /**
+     * Waits for a free dungeon for one party, counting the party as formed once it has one.
+     * @return The (global) dungeon ID, or 0 if interrupted.
+     */
+    private int acquire(long key) {
+        try {
+            long waitStart = System.nanoTime();
+            int dungeonID = idOffset + dungeonSlots.acquireFor(key);
+            dungeonStatus.getEvents().partiesFormed(1);
+            if (metrics != null) {
+                metrics.recordSlotWait(System.nanoTime() - waitStart, 1);
+            }
+            return dungeonID;
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Takes a dungeon for one party if one is free, counting the party as formed.
+     * @return The (global) dungeon ID, or 0 if every dungeon is busy.
+     */
+    private int tryAcquire(long key) {
+        int localID = dungeonSlots.tryAcquireFor(key);
+        if (localID == 0) return 0;
+        dungeonStatus.getEvents().partiesFormed(1);
+        if (metrics != null) {
+            metrics.recordSlotWait(0, 1);
+        }
+        return idOffset + localID;
+    }
+
+    /**
+     * Returns the key AFFINITY placement uses for a party: its Tank's ID, so a party led
+     * by the same player keeps returning to the same dungeon while it is free.
+     * @param leaderID The ID of the party's Tank.
+     * @return The key, or 0 when affinity placement is off.
+     */
+    private long affinityKey(int leaderID) {
+        return placement == PlacementPolicy.AFFINITY ? leaderID : 0;
+    }
+
+    /**
+     * Sets a listener that is told about every run this manager starts and finishes.
+     * @param runListener The listener (may be null).
+     */
+    public void setRunListener(RunListener runListener) {
+        this.runListener = runListener;
+    }
+
+    /**
+     * Marks the dungeon active with the party inside and starts the run.
+     * @param dungeonID The (global) dungeon the party entered.
+     * @param partyID The party inside.
+     */
+    private void enter(int dungeonID, int partyID) {
+        checkpointLock.readLock().lock();
+        try {
+            dungeonStatus.startRun(dungeonID, partyID);
+
+            launch(dungeonID, partyID);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Assigns a list of parties to dungeons in one call (see {@link #assignParties}).
+     * @param parties The parties to assign, in order.
+     */
+    public void assignPartiesToInstances(List<String[]> parties) {
+        if (parties.isEmpty()) return;
+        PartyBatch batch = new PartyBatch(parties.size());
+        for (String[] party : parties) {
+            batch.addParty(party);
+        }
+        assignParties(batch);
+    }
+
+    /**
+     * Assigns a batch of parties to dungeons in one call and records each placement in the batch.
+     * Dungeon IDs, party IDs and status updates are taken for as many parties
+     * as there are free dungeons at once; the call returns when every party has been placed.
+     * Parties are counted as formed as they are placed, so if the wait for a dungeon is
+     * interrupted the ones left over are not waited for.
+     * @param batch The parties to assign, in order.
+     */
+    public void assignParties(PartyBatch batch) {
+        int total = batch.size();
+        int assigned = 0;
+        try {
+            while (assigned < total) {
+                // Block for one dungeon, then grab as many more as are free right now.
+                long waitStart = System.nanoTime();
+                int granted = 0;
+                int localID = dungeonSlots.acquireFor(affinityKey(batch.getLeader(assigned)));
+                while (localID != 0) {
+                    batch.setPlacement(assigned + granted++, idOffset + localID, 0);
+                    if (assigned + granted == total) break;
+                    localID = dungeonSlots.tryAcquireFor(affinityKey(batch.getLeader(assigned + granted)));
+                }
+                if (metrics != null) {
+                    metrics.recordSlotWait(System.nanoTime() - waitStart, granted);
+                }
+                int firstPartyID = partyCount.addAndGet(granted) - granted + 1;
+                for (int i = 0; i < granted; i++) {
+                    batch.setPlacement(assigned + i, batch.getDungeonID(assigned + i), firstPartyID + i);
+                }
+                dungeonStatus.getEvents().partiesFormed(granted);
+
+                checkpointLock.readLock().lock();
+                try {
+                    dungeonStatus.startRuns(batch, assigned, granted);
+                    for (int i = assigned; i < assigned + granted; i++) {
+                        launch(batch.getDungeonID(i), batch.getPartyID(i));
+                    }
+                } finally {
+                    checkpointLock.readLock().unlock();
+                }
+                assigned += granted;
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts a dungeon run for a party that has already been given a dungeon.
+     * @param dungeonID The dungeon the party entered.
+     * @param partyID The party inside.
+     */
+    private void launch(int dungeonID, int partyID) {
+        DungeonInstance dungeon = new DungeonInstance(dungeonID, minTime, maxTime);
+        int clearTime = dungeon.getClearTime();
+        setRun(dungeonID - idOffset, System.currentTimeMillis() + clearTime * 1000L, clearTime);
+        if (runListener != null) {
+            runListener.runStarted(dungeonID, partyID);
+        }
+        dungeonStatus.getEvents().dungeonStarted(dungeonID, partyID);
+        scheduleCompletion(dungeonID, partyID, clearTime, clearTime * 1000L, dungeon);
+    }
+
+    private void setRun(int local, long endMillis, int clearTime) {
+        runEnds[local >>> RUN_CHUNK_BITS][local & RUN_CHUNK_MASK] = endMillis;
+        runClearTimes[local >>> RUN_CHUNK_BITS][local & RUN_CHUNK_MASK] = clearTime;
+    }
+
+    /**
+     * Keeps the run records and the status table in step with the pool size. Called by the
+     * allocator before new IDs can be taken and after retired ones are gone.
+     */
+    private void poolResized(int oldSize, int newSize) {
+        if (newSize > oldSize) {
+            for (int c = oldSize >>> RUN_CHUNK_BITS; c <= newSize >>> RUN_CHUNK_BITS; c++) {
+                if (runEnds[c] == null) {
+                    runEnds[c] = new long[1 << RUN_CHUNK_BITS];
+                    runClearTimes[c] = new int[1 << RUN_CHUNK_BITS];
+                }
+            }
+            // DungeonStatus names the dungeons from their IDs when displayed.
+            dungeonStatus.addDungeons(idOffset + oldSize + 1, newSize - oldSize);
+        } else {
+            // No checkpoint lock here: the allocator holds its resize lock, which a party being
+            // placed under the read lock may need to grow the pool. Retired dungeons are idle,
+            // and a checkpoint treats a dropped chunk as idle too.
+            dungeonStatus.removeDungeons(idOffset + newSize + 1, oldSize - newSize);
+            for (int c = (newSize >>> RUN_CHUNK_BITS) + 1; c <= oldSize >>> RUN_CHUNK_BITS; c++) {
+                runEnds[c] = null;
+                runClearTimes[c] = null;
+            }
+        }
+    }
+
+    /**
+     * Gives idle dungeons back once fewer than a quarter of the pool is busy, keeping
+     * twice the busy count (and at least the initial size).
+     */
+    private void shrinkIfIdle() {
+        int size = dungeonSlots.size();
+        if (size <= minPoolSize) return;
+        int busy = size - dungeonSlots.available();
+        if (busy >= size >>> 2) return;
+        dungeonSlots.shrink(Math.max(minPoolSize, 2 * busy));
+    }
+
+    /**
+     * Completes a run after the given delay.
+     * @param run What a run thread executes for the delay (thread modes only).
+     */
+    private void scheduleCompletion(int dungeonID, int partyID, int clearTime, long delayMillis, Runnable run) {
+        if (mode == ExecutionMode.TIMER) {
+            // The run is just a completion event on the shared timer; no thread is parked for it.
+            scheduler.schedule(() -> completeRun(dungeonID, partyID, clearTime), delayMillis);
+        } else {
+            // Platform or virtual threads, depending on the mode; the blocking code is the same.
+            Thread runner = runThreads.newThread(run);
+            runner.start();
+            runThreads.newThread(() -> {
+                try {
+                    runner.join();
+                    completeRun(dungeonID, partyID, clearTime);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }).start();
+        }
+    }
+
+    /**
+     * Releases a dungeon slot and records the finished run.
+     * @param dungeonID The dungeon that finished.
+     * @param partyID The party that was inside.
+     * @param clearTime The time (in seconds) the run took.
+     */
+    private void completeRun(int dungeonID, int partyID, int clearTime) {
+        // Recorded while the dungeon is still in the pool: once released it may be retired.
+        dungeonStatus.addPartyStatus(partyID, dungeonID, clearTime);
+        checkpointLock.readLock().lock();
+        try {
+            setRun(dungeonID - idOffset, 0, 0);
+            // Status first: once released, the dungeon may be retired by a shrinking pool.
+            dungeonStatus.finishRun(dungeonID, clearTime);
+            dungeonSlots.release(dungeonID - idOffset, clearTime);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (elastic) {
+            shrinkIfIdle();
+        }
+        if (metrics != null) {
+            metrics.recordCompletion(clearTime);
+        }
+        if (runListener != null) {
+            runListener.runFinished(dungeonID, partyID, clearTime);
+        }
+        dungeonStatus.getEvents().dungeonFinished(dungeonID, partyID, clearTime);
+    }
+
+    /**
+     * Takes parties from a queue and assigns them, with no checkpoint taken in between,
+     * so a checkpoint always finds each party either still queued or in a dungeon.
+     * Takes no more parties than there are free dungeons, so placing them never waits while
+     * checkpoints are held off. Call from one thread at a time.
+     * @param queue The queue to take parties from.
+     * @param batch Receives the parties and their placements (cleared first).
+     * @param maxParties Maximum number of parties to take.
+     * @return The number of parties taken and assigned (0 if no dungeon is free).
+     */
+    public int takeAndAssignParties(PartyQueue queue, PartyBatch batch, int maxParties) {
+        checkpointLock.readLock().lock();
+        try {
+            batch.clear();
+            int taken = queue.takeParties(batch, Math.min(maxParties, maxDungeons - getBusyDungeons()));
+            if (taken > 0) {
+                assignParties(batch);
+            }
+            return taken;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the dungeon table, in-flight runs and party counter into a checkpoint state,
+     * together with the queue. Runs cannot start or finish, and no party can be taken by
+     * {@link #takeAndAssignParties}, while the copy is taken.
+     * @param state Receives the state; its dungeon records are grown to the pool's highest ID.
+     * @param queue The queue to save (may be null to save dungeons only).
+     * @param nowMillis When the checkpoint is taken.
+     */
+    public void capture(DungeonCheckpoint.State state, QueueManager queue, long nowMillis) {
+        checkpointLock.writeLock().lock();
+        try {
+            if (queue != null) {
+                queue.exportTo(state, nowMillis);
+            } else {
+                state.queued = 0;
+            }
+            state.minTime = minTime;
+            state.maxTime = maxTime;
+            state.partyCount = partyCount.get();
+            int poolSize = dungeonSlots.size();
+            state.ensureDungeonCapacity(idOffset + poolSize);
+            DungeonStatus.Snapshot row = new DungeonStatus.Snapshot();
+            state.dungeons = idOffset + poolSize;
+            for (int local = 1; local <= poolSize; local++) {
+                int dungeonID = idOffset + local;
+                int i = dungeonID - 1;
+                if (state.names[i] == null) {
+                    // Names never change, so each is spelled out once per state.
+                    state.names[i] = dungeonStatus.getDungeonName(dungeonID);
+                }
+                dungeonStatus.read(dungeonID, row);
+                state.partiesServed[i] = row.partiesServed;
+                state.totalTimeServed[i] = row.totalTimeServed;
+                state.partyInside[i] = row.partyInside;
+                long[] ends = runEnds[local >>> RUN_CHUNK_BITS];
+                int[] clearTimes = runClearTimes[local >>> RUN_CHUNK_BITS];
+                boolean dropped = ends == null || clearTimes == null;
+                state.endMillis[i] = dropped ? 0 : ends[local & RUN_CHUNK_MASK];
+                state.clearTime[i] = dropped ? 0 : clearTimes[local & RUN_CHUNK_MASK];
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts back the names, counters and party counter from a checkpoint and resumes every
+     * run that was in progress with the time it had left when the checkpoint was taken.
+     * Call before any party is assigned.
+     * @param state The restored state.
+     */
+    public void restore(DungeonCheckpoint.State state) {
+        partyCount.set(state.partyCount);
+        long now = System.currentTimeMillis();
+        // Dungeons that were in the pool have a saved name; bring the pool back to that size.
+        int poolSize = 0;
+        for (int local = 1; local <= Math.min(maxDungeons, state.dungeons - idOffset); local++) {
+            if (state.names[idOffset + local - 1] != null) poolSize = local;
+        }
+        dungeonSlots.ensureSize(poolSize);
+        for (int local = 1; local <= poolSize; local++) {
+            int dungeonID = idOffset + local;
+            int i = dungeonID - 1;
+            dungeonStatus.setDungeonName(dungeonID, state.names[i]);
+            dungeonStatus.restoreCounters(dungeonID, state.partiesServed[i], state.totalTimeServed[i]);
+            dungeonSlots.addLoad(local, state.totalTimeServed[i]);
+            if (state.endMillis[i] == 0 || !dungeonSlots.tryAcquire(local)) continue;
+
+            int partyID = state.partyInside[i];
+            int clearTime = state.clearTime[i];
+            long remaining = Math.max(0, state.endMillis[i] - state.takenMillis);
+            setRun(local, now + remaining, clearTime);
+            dungeonStatus.resumeRun(dungeonID, partyID);
+            if (runListener != null) {
+                runListener.runStarted(dungeonID, partyID);
+            }
+            // The party was formed before the restart; it counts as formed again here.
+            dungeonStatus.getEvents().partiesFormed(1);
+            dungeonStatus.getEvents().dungeonStarted(dungeonID, partyID);
+            scheduleCompletion(dungeonID, partyID, clearTime, remaining, () -> {
+                try {
+                    Thread.sleep(remaining);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the completion scheduler once all work has been submitted.
+     * Runs that are already scheduled still complete.
+     */
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates random, pronounceable dungeon names using a syllable-based approach.
+ * An instance names dungeons 1..capacity without collisions: each index is mapped by a
+ * seeded permutation of the syllable space (18 consonants x 5 vowels per syllable) to a
+ * code whose base-90 digits are the syllables, and the name is only spelled out when asked
+ * for. Nothing is stored per dungeon.
+ */
+public class DungeonNameGenerator {
+
+    private static final String[] VOWELS = {"a", "e", "i", "o", "u"};
+    private static final String[] CONSONANTS = {"b", "c", "d", "f", "g", "h", "j", "k", "l", "m",
+            "n", "p", "r", "s", "t", "v", "w", "z"};
+    private static final String VOWEL_CHARS = "aeiou";
+    private static final String CONSONANT_CHARS = "bcdfghjklmnprstvwz";
+    private static final int SYLLABLES = CONSONANT_CHARS.length() * VOWEL_CHARS.length();
+    private static final int MIN_SYLLABLES = 3;
+
+    private final int capacity;
+    private final int syllableCount;
+    private final long space;
+    // Two affine maps (x * a + b mod space, a coprime to space) around a digit reversal.
+    private final long multiplier1;
+    private final long offset1;
+    private final long multiplier2;
+    private final long offset2;
+
+    /**
+     * Constructs a DungeonNameGenerator for a pool of dungeons. Names have 3 syllables,
+     * or more if the pool is larger than the 729,000 three-syllable names.
+     * @param capacity Number of dungeons that need distinct names.
+     * @param seed Seed choosing which names are used and in what order.
+     * @throws IllegalArgumentException if capacity is less than 1.
+     */
+    public DungeonNameGenerator(int capacity, long seed) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        this.capacity = capacity;
+        int count = MIN_SYLLABLES;
+        long size = (long) SYLLABLES * SYLLABLES * SYLLABLES;
+        while (size < capacity) {
+            size *= SYLLABLES;
+            count++;
+        }
+        this.syllableCount = count;
+        this.space = size;
+        Random random = new Random(seed);
+        this.multiplier1 = coprimeMultiplier(random);
+        this.offset1 = Math.floorMod(random.nextLong(), space);
+        this.multiplier2 = coprimeMultiplier(random);
+        this.offset2 = Math.floorMod(random.nextLong(), space);
+    }
+
+    /**
+     * Returns the name of a dungeon. Distinct indexes always get distinct names.
+     * @param index Dungeon index, 1..capacity.
+     * @return The dungeon name.
+     * @throws IllegalArgumentException if the index is out of range.
+     */
+    public String nameOf(int index) {
+        if (index < 1 || index > capacity) {
+            throw new IllegalArgumentException("Dungeon index out of range: " + index);
+        }
+        long code = codeOf(index);
+        char[] name = new char[2 * syllableCount];
+        for (int i = 0; i < syllableCount; i++) {
+            int syllable = (int) (code % SYLLABLES);
+            code /= SYLLABLES;
+            name[2 * i] = CONSONANT_CHARS.charAt(syllable / VOWEL_CHARS.length());
+            name[2 * i + 1] = VOWEL_CHARS.charAt(syllable % VOWEL_CHARS.length());
+        }
+        name[0] = Character.toUpperCase(name[0]);
+        return new String(name);
+    }
+
+    /**
+     * @return The number of dungeons this generator names.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of syllables in every name.
+     */
+    public int getSyllableCount() {
+        return syllableCount;
+    }
+
+    /**
+     * Returns the code whose base-90 digits are the syllables of a dungeon's name.
+     * @param index Dungeon index, 1..capacity.
+     * @return The code, 0..space - 1.
+     */
+    long codeOf(int index) {
+        long shuffled = reverseDigits(permute(index - 1, multiplier1, offset1, space));
+        return permute(shuffled, multiplier2, offset2, space);
+    }
+
+    /**
+     * Computes (x * multiplier + offset) mod space exactly.
+     * x, multiplier and offset are below space (< 2^33), so x * multiplier can need 66 bits;
+     * multiplying by the multiplier's top 17 and bottom 16 bits separately keeps every
+     * intermediate below 2^51.
+     */
+    static long permute(long x, long multiplier, long offset, long space) {
+        long high = x * (multiplier >>> 16) % space;
+        long product = ((high << 16) + x * (multiplier & 0xFFFF)) % space;
+        return (product + offset) % space;
+    }
+
+    private long reverseDigits(long x) {
+        long reversed = 0;
+        for (int i = 0; i < syllableCount; i++) {
+            reversed = reversed * SYLLABLES + x % SYLLABLES;
+            x /= SYLLABLES;
+        }
+        return reversed;
+    }
+
+    private long coprimeMultiplier(Random random) {
+        // The space is a power of 90 = 2 * 3^2 * 5, so anything free of 2, 3 and 5 is coprime.
+        long multiplier;
+        do {
+            multiplier = 1 + Math.floorMod(random.nextLong(), space - 1);
+        } while (multiplier % 2 == 0 || multiplier % 3 == 0 || multiplier % 5 == 0);
+        return multiplier;
+    }
+
+    /**
+     * Generates a simple syllable (consonant + vowel).
+     * @param random Random instance used for generation.
+     * @return A syllable as a String.
+     */
+    public static String generateSyllable(Random random) {
+        String consonant = CONSONANTS[random.nextInt(CONSONANTS.length)];
+        String vowel = VOWELS[random.nextInt(VOWELS.length)];
+        return consonant + vowel;
+    }
+
+    /**
+     * Generates a random name composed of the specified number of syllables.
+     * @param syllableCount Number of syllables to include.
+     * @return A randomly generated dungeon name.
+     * @throws IllegalArgumentException if syllableCount is less than 1.
+     */
+    public static String generateRandomName(int syllableCount) {
+        return generateRandomName(syllableCount, new Random());
+    }
+
+    /**
+     * Generates a name composed of the specified number of syllables from the given source.
+     * @param syllableCount Number of syllables to include.
+     * @param random Random instance used for generation (seeded for reproducible names).
+     * @return A randomly generated dungeon name.
+     * @throws IllegalArgumentException if syllableCount is less than 1.
+     */
+    public static String generateRandomName(int syllableCount, Random random) {
+        if (syllableCount < 1) {
+            throw new IllegalArgumentException("There must be at least one syllable.");
+        }
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < syllableCount; i++) {
+            String syllable = generateSyllable(random);
+            if (i == 0) {
+                syllable = Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1);
+            }
+            name.append(syllable);
+        }
+        return name.toString();
+    }
+
+    /**
+     * Main method for testing the dungeon name generator.
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        String randomName = generateRandomName(3);
+        System.out.println("Generated Name: " + randomName);
+
+        // Optional argument: time naming a pool of that many dungeons and check for collisions.
+        if (args.length > 0) {
+            int capacity = Integer.parseInt(args[0]);
+            long start = System.nanoTime();
+            DungeonNameGenerator generator = new DungeonNameGenerator(capacity, System.nanoTime());
+            long created = System.nanoTime();
+            Set<String> seen = new HashSet<>();
+            for (int i = 1; i <= capacity; i++) {
+                seen.add(generator.nameOf(i));
+            }
+            System.out.println("Pool of " + capacity + ": generator ready in " + (created - start) / 1000
+                    + " us, " + generator.getSyllableCount() + " syllables, "
+                    + (capacity - seen.size()) + " collisions, e.g. " + generator.nameOf(1) + ", "
+                    + generator.nameOf(capacity));
+        }
+    }
+}
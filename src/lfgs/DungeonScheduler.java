@@ -0,0 +1,57 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared timer that fires dungeon completion callbacks.
+ * A fixed, small number of threads handles every active dungeon, so the thread
+ * count does not grow with the number of running parties.
+ */
+public class DungeonScheduler {
+    private static final int DEFAULT_THREADS = 2;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Constructs a DungeonScheduler with the default number of timer threads.
+     */
+    public DungeonScheduler() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Constructs a DungeonScheduler.
+     * @param threads Number of timer threads used to run completion callbacks.
+     */
+    public DungeonScheduler(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "dungeon-timer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, threads), factory);
+    }
+
+    /**
+     * Schedules a completion callback after the given delay.
+     * @param callback The work to run when the dungeon finishes.
+     * @param delayMillis Delay before the callback runs (milliseconds).
+     */
+    public void schedule(Runnable callback, long delayMillis) {
+        executor.schedule(callback, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops accepting new callbacks. Already scheduled callbacks still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,133 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Discrete-event simulation of the dungeon queue.
+ * Runs advance a virtual clock instead of sleeping, so a run finishes as fast as the
+ * CPU allows. With the same seed and inputs the results are always the same.
+ */
+public class DungeonSimulator {
+    private int maxDungeons;
+    private int minTime, maxTime;
+    private DungeonStatus dungeonStatus;
+    private Random random;
+    // Free dungeons in the order they are handed out: those never used (1 up to
+    // maxDungeons, counted rather than queued), then those freed, oldest first.
+    private int nextUnusedID = 1;
+    private LongQueue freedDungeonIDs = new LongQueue();
+    private PriorityQueue<Completion> events = new PriorityQueue<>();
+    private long clock = 0;
+    private int partyCount = 0;
+
+    /**
+     * A scheduled dungeon completion on the virtual clock.
+     */
+    private static class Completion implements Comparable<Completion> {
+        final long time;
+        final int dungeonID;
+        final int partyID;
+        final int clearTime;
+
+        Completion(long time, int dungeonID, int partyID, int clearTime) {
+            this.time = time;
+            this.dungeonID = dungeonID;
+            this.partyID = partyID;
+            this.clearTime = clearTime;
+        }
+
+        @Override
+        public int compareTo(Completion other) {
+            // Ties are broken by dungeon ID so the event order never depends on heap internals.
+            if (time != other.time) return Long.compare(time, other.time);
+            return Integer.compare(dungeonID, other.dungeonID);
+        }
+    }
+
+    /**
+     * Constructs a DungeonSimulator.
+     * @param maxDungeons Maximum number of concurrent dungeons.
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @param dungeonStatus Status object that receives the per-dungeon statistics.
+     * @param seed Seed for clear times and dungeon names.
+     */
+    public DungeonSimulator(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus, long seed) {
+        this.maxDungeons = maxDungeons;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.dungeonStatus = dungeonStatus;
+        this.random = new Random(seed);
+
+        dungeonStatus.setNameGenerator(new DungeonNameGenerator(Math.max(1, maxDungeons), random.nextLong()));
+        dungeonStatus.addDungeons(1, maxDungeons);
+    }
+
+    /**
+     * Drains the queue, assigning parties to dungeons on the virtual clock.
+     * @param queue The queue to form parties from.
+     * With no dungeons nothing can run, so the queue is left as it is.
+     * @return The simulated time (in seconds) at which the last dungeon finished.
+     */
+    public long run(PartyQueue queue) {
+        PartyBatch batch = new PartyBatch(1);
+        while (queue.canFormParty()) {
+            int dungeonID = nextFreeDungeon();
+            if (dungeonID == 0) {
+                if (!completeNext()) break;
+                continue;
+            }
+            batch.clear();
+            queue.takeParties(batch, 1);
+            int partyID = ++partyCount;
+            int clearTime = new DungeonInstance(dungeonID, minTime, maxTime, random).getClearTime();
+
+            dungeonStatus.startRun(dungeonID, partyID);
+            events.add(new Completion(clock + clearTime, dungeonID, partyID, clearTime));
+        }
+        while (completeNext()) {
+        }
+        return clock;
+    }
+
+    /**
+     * Takes the next free dungeon.
+     * @return The dungeon ID, or 0 if every dungeon is busy.
+     */
+    private int nextFreeDungeon() {
+        if (nextUnusedID <= maxDungeons) return nextUnusedID++;
+        if (freedDungeonIDs.size() == 0) return 0;
+        return (int) freedDungeonIDs.poll();
+    }
+
+    /**
+     * Advances the clock to the earliest pending completion and records it.
+     * @return False if no run is in progress.
+     */
+    private boolean completeNext() {
+        Completion c = events.poll();
+        if (c == null) return false;
+        clock = c.time;
+        freedDungeonIDs.add(c.dungeonID);
+        dungeonStatus.finishRun(c.dungeonID, c.clearTime);
+        dungeonStatus.addPartyStatus(c.partyID, c.dungeonID, c.clearTime, clock * 1000L);
+        return true;
+    }
+
+    /**
+     * @return The number of parties dispatched so far.
+     */
+    public int getPartyCount() {
+        return partyCount;
+    }
+
+    /**
+     * @return The configured number of dungeons.
+     */
+    public int getMaxDungeons() {
+        return maxDungeons;
+    }
+}
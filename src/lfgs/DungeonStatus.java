@@ -0,0 +1,782 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Continuously updates and displays the live status of dungeons and parties.
+ * Also logs finished party statuses to a text file, and keeps the most recent runs in a
+ * {@link RunHistory} (sized by -Dlfg.history) for the display and metrics to query.
+ * Per-dungeon counters are lock-free primitive arrays indexed by dungeon ID, so
+ * completions never wait on the display. Each dungeon's fields are guarded by a
+ * per-slot sequence number (odd while a write is in progress); {@link #read} retries
+ * until it gets a {@link Snapshot} taken between writes, so readers never see a run
+ * half started or half finished. Every write also marks its dungeon as changed, and
+ * {@link #drainChanges} hands the display only the dungeons changed since its last frame.
+ */
+public class DungeonStatus extends Thread {
+    // Dungeon slots are stored in fixed-size segments that are created on first use.
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    // Values stored in Segment.state.
+    private static final int STATE_UNKNOWN = 0;
+    private static final int STATE_EMPTY = 1;
+    private static final int STATE_ACTIVE = 2;
+
+    // Number of finished runs shown on the display.
+    public static final int RECENT_RUNS = 5;
+
+    private final AtomicReferenceArray<Segment> segments;
+    private final AtomicLongArray changedSegments; // one bit per segment with a changed dungeon
+    private final AtomicInteger highestDungeonID = new AtomicInteger();
+    private final AtomicInteger knownDungeons = new AtomicInteger();
+    private final AtomicInteger activeDungeons = new AtomicInteger();
+    private final LongAdder allPartiesServed = new LongAdder();
+    private final LongAdder allTimeServed = new LongAdder();
+    private StatusRenderer renderer;
+    private long refreshMillis = 1000;
+    private long minRefreshMillis = 50;
+    private final LifecycleEvents events = new LifecycleEvents();
+    private final RunHistory history = RunHistory.fromSystemProperties();
+    private volatile boolean running = true;
+    private String logFileName;
+    private volatile PartyLogWriter logWriter;
+    private volatile String leftoverInfo = "";
+    private volatile DungeonNameGenerator nameGenerator;
+
+    /**
+     * Counters for one block of consecutive dungeon IDs.
+     */
+    private static class Segment {
+        final int index;
+        final AtomicLongArray changed = new AtomicLongArray(SEGMENT_SIZE / 64); // one bit per dungeon
+        final AtomicIntegerArray state = new AtomicIntegerArray(SEGMENT_SIZE);
+        final AtomicIntegerArray partiesServed = new AtomicIntegerArray(SEGMENT_SIZE);
+        final AtomicLongArray totalTimeServed = new AtomicLongArray(SEGMENT_SIZE);
+        final AtomicIntegerArray partyInside = new AtomicIntegerArray(SEGMENT_SIZE); // 0 = none
+        volatile AtomicReferenceArray<String> names; // explicit names only, created on first use
+        final AtomicLongArray stateSince = new AtomicLongArray(SEGMENT_SIZE); // millis of last Active/Empty change
+        final AtomicIntegerArray version = new AtomicIntegerArray(SEGMENT_SIZE); // odd while being written
+
+        Segment(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * One dungeon's fields as of a single instant. Reusable: {@link #read} overwrites it.
+     */
+    public static class Snapshot {
+        public int dungeonID;
+        public boolean known;
+        public boolean active;
+        public int partiesServed;
+        public long totalTimeServed;
+        public int partyInside; // 0 = none
+        public long stateSince;
+    }
+
+    /**
+     * Constructs a DungeonStatus instance and initializes the log file name.
+     * @param maxDungeons Highest dungeon ID that will be reported.
+     */
+    public DungeonStatus(int maxDungeons) {
+        this(maxDungeons, true);
+    }
+
+    /**
+     * Constructs a DungeonStatus instance.
+     * @param maxDungeons Highest dungeon ID that will be reported.
+     * @param logRuns True to log finished parties to a party_status_* file.
+     */
+    public DungeonStatus(int maxDungeons, boolean logRuns) {
+        logFileName = "party_status_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        if (logRuns) {
+            try {
+                logWriter = PartyLogWriter.fromSystemProperties(logFileName, this::getDungeonName);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        segments = new AtomicReferenceArray<>(Math.max(1, (maxDungeons >>> SEGMENT_BITS) + 1));
+        changedSegments = new AtomicLongArray((segments.length() + 63) >>> 6);
+        nameGenerator = new DungeonNameGenerator(Math.max(1, maxDungeons), System.nanoTime());
+        renderer = StatusRenderer.fromSystemProperties(this);
+        refreshMillis = Long.getLong("lfg.refreshMillis", refreshMillis);
+        minRefreshMillis = Long.getLong("lfg.refreshMinMillis", minRefreshMillis);
+    }
+
+    /**
+     * Returns the segment holding a dungeon, creating it on first use.
+     * @param dungeonID The dungeon identifier.
+     * @return The segment.
+     */
+    private Segment segment(int dungeonID) {
+        int index = dungeonID >>> SEGMENT_BITS;
+        Segment segment = segments.get(index);
+        if (segment == null) {
+            segments.compareAndSet(index, null, new Segment(index));
+            segment = segments.get(index);
+            highestDungeonID.accumulateAndGet(dungeonID, Math::max);
+        } else if (highestDungeonID.get() < dungeonID) {
+            highestDungeonID.accumulateAndGet(dungeonID, Math::max);
+        }
+        return segment;
+    }
+
+    /**
+     * Starts a write to a dungeon's fields, waiting out any other writer of the same slot.
+     */
+    private static void beginWrite(Segment segment, int slot) {
+        while (true) {
+            int version = segment.version.get(slot);
+            if ((version & 1) == 0 && segment.version.compareAndSet(slot, version, version + 1)) return;
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Ends a write started by {@link #beginWrite}, publishing it to readers, and marks the
+     * dungeon as changed.
+     */
+    private void endWrite(Segment segment, int slot) {
+        segment.version.incrementAndGet(slot);
+        // The dungeon's bit goes first: a drain that clears the segment's bit still finds it.
+        if (setBit(segment.changed, slot)) {
+            setBit(changedSegments, segment.index);
+        }
+    }
+
+    /**
+     * Sets a bit unless it is already set.
+     * @return True if this call set it.
+     */
+    private static boolean setBit(AtomicLongArray bits, int index) {
+        int word = index >>> 6;
+        long mask = 1L << (index & 63);
+        long value;
+        do {
+            value = bits.get(word);
+            if ((value & mask) != 0) return false;
+        } while (!bits.compareAndSet(word, value, value | mask));
+        return true;
+    }
+
+    /**
+     * Hands every dungeon changed since the previous call to a visitor, clearing its mark.
+     * The cost follows the number of changes, plus one word per 65,536 dungeon IDs.
+     * Meant for a single consumer (the display); a dungeon changed while this runs is
+     * either visited now or on the next call.
+     * @param visitor Receives the ID of each changed dungeon.
+     * @return Number of dungeons visited.
+     */
+    public int drainChanges(IntConsumer visitor) {
+        int count = 0;
+        for (int w = 0; w < changedSegments.length(); w++) {
+            if (changedSegments.get(w) == 0) continue;
+            long pending = changedSegments.getAndSet(w, 0);
+            while (pending != 0) {
+                int index = (w << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                Segment segment = segments.get(index);
+                for (int k = 0; k < SEGMENT_SIZE / 64; k++) {
+                    if (segment.changed.get(k) == 0) continue;
+                    long bits = segment.changed.getAndSet(k, 0);
+                    while (bits != 0) {
+                        visitor.accept((index << SEGMENT_BITS) + (k << 6) + Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves a dungeon to a new state, keeping the pool-wide counts in step.
+     * Callers hold the slot's write.
+     */
+    private void setState(Segment segment, int slot, int state) {
+        int previous = segment.state.getAndSet(slot, state);
+        if (previous == state) return;
+        segment.stateSince.set(slot, System.currentTimeMillis());
+        if (previous == STATE_UNKNOWN) knownDungeons.incrementAndGet();
+        if (previous == STATE_ACTIVE) activeDungeons.decrementAndGet();
+        if (state == STATE_ACTIVE) activeDungeons.incrementAndGet();
+    }
+
+    /**
+     * Updates the status (Active/Empty) of a dungeon.
+     * @param dungeonID The dungeon identifier.
+     * @param isActive True if the dungeon is active; false if empty.
+     */
+    public void updateDungeon(int dungeonID, boolean isActive) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        if (!isActive) {
+            segment.partyInside.set(slot, 0);
+        }
+        setState(segment, slot, isActive ? STATE_ACTIVE : STATE_EMPTY);
+        endWrite(segment, slot);
+    }
+
+    /**
+     * Marks a dungeon active with a party inside and counts the party as served, in one write.
+     * @param dungeonID The dungeon identifier.
+     * @param partyID The party identifier.
+     */
+    public void startRun(int dungeonID, int partyID) {
+        enterRun(dungeonID, partyID, 1);
+        allPartiesServed.increment();
+    }
+
+    /**
+     * Marks a dungeon active with a party inside without counting the party again, e.g. for
+     * a run restored from a checkpoint.
+     * @param dungeonID The dungeon identifier.
+     * @param partyID The party identifier.
+     */
+    public void resumeRun(int dungeonID, int partyID) {
+        enterRun(dungeonID, partyID, 0);
+    }
+
+    private void enterRun(int dungeonID, int partyID, int served) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        segment.partyInside.set(slot, partyID);
+        setState(segment, slot, STATE_ACTIVE);
+        if (served != 0) segment.partiesServed.addAndGet(slot, served);
+        endWrite(segment, slot);
+    }
+
+    /**
+     * Marks a dungeon empty, clears its party and adds the run's time, in one write.
+     * @param dungeonID The dungeon identifier.
+     * @param time The time (in seconds) the run took.
+     */
+    public void finishRun(int dungeonID, int time) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        segment.partyInside.set(slot, 0);
+        setState(segment, slot, STATE_EMPTY);
+        segment.totalTimeServed.addAndGet(slot, time);
+        endWrite(segment, slot);
+        allTimeServed.add(time);
+    }
+
+    /**
+     * Sets the name for a given dungeon, replacing its generated one.
+     * @param dungeonID The dungeon identifier.
+     * @param name The name to assign.
+     */
+    public void setDungeonName(int dungeonID, String name) {
+        Segment segment = segment(dungeonID);
+        AtomicReferenceArray<String> names = segment.names;
+        if (names == null) {
+            synchronized (segment) {
+                if (segment.names == null) {
+                    segment.names = new AtomicReferenceArray<>(SEGMENT_SIZE);
+                }
+                names = segment.names;
+            }
+        }
+        names.set(dungeonID & SEGMENT_MASK, name);
+    }
+
+    /**
+     * Replaces the generator that names dungeons without an explicit name, e.g. with a
+     * seeded one for reproducible names.
+     * @param nameGenerator The generator (its capacity should cover every dungeon ID), or null
+     *                      to show dungeons without an explicit name as "Unknown".
+     */
+    public void setNameGenerator(DungeonNameGenerator nameGenerator) {
+        this.nameGenerator = nameGenerator;
+    }
+
+    /**
+     * Reports a block of consecutive dungeons as Empty, e.g. when a pool is created.
+     * @param firstID The first dungeon identifier.
+     * @param count Number of dungeons.
+     */
+    public void addDungeons(int firstID, int count) {
+        if (count <= 0) return;
+        long now = System.currentTimeMillis();
+        int last = firstID + count - 1;
+        int added = 0;
+        for (int id = firstID; id <= last; ) {
+            Segment segment = segment(id);
+            int end = Math.min(last, id | SEGMENT_MASK);
+            for (; id <= end; id++) {
+                int slot = id & SEGMENT_MASK;
+                beginWrite(segment, slot);
+                if (segment.state.compareAndSet(slot, STATE_UNKNOWN, STATE_EMPTY)) {
+                    segment.stateSince.set(slot, now);
+                    added++;
+                }
+                endWrite(segment, slot);
+            }
+        }
+        highestDungeonID.accumulateAndGet(last, Math::max);
+        knownDungeons.addAndGet(added);
+    }
+
+    /**
+     * Takes a block of consecutive empty dungeons off the table, e.g. when a pool shrinks.
+     * Their counters are kept in case they come back.
+     * @param firstID The first dungeon identifier.
+     * @param count Number of dungeons.
+     */
+    public void removeDungeons(int firstID, int count) {
+        if (count <= 0) return;
+        int last = firstID + count - 1;
+        int removed = 0;
+        for (int id = firstID; id <= last; ) {
+            Segment segment = segments.get(id >>> SEGMENT_BITS);
+            int end = Math.min(last, id | SEGMENT_MASK);
+            for (; id <= end; id++) {
+                if (segment == null) continue;
+                int slot = id & SEGMENT_MASK;
+                beginWrite(segment, slot);
+                if (segment.state.compareAndSet(slot, STATE_EMPTY, STATE_UNKNOWN)) {
+                    removed++;
+                }
+                endWrite(segment, slot);
+            }
+        }
+        highestDungeonID.compareAndSet(last, firstID - 1);
+        knownDungeons.addAndGet(-removed);
+    }
+
+    /**
+     * Increments the number of parties served for a dungeon.
+     * @param dungeonID The dungeon identifier.
+     */
+    public void incrementPartiesServed(int dungeonID) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        segment.partiesServed.incrementAndGet(slot);
+        endWrite(segment, slot);
+        allPartiesServed.increment();
+    }
+
+    /**
+     * Adds a given time (in seconds) to the total time served for a dungeon.
+     * @param dungeonID The dungeon identifier.
+     * @param time The time to add.
+     */
+    public void addTimeServed(int dungeonID, int time) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        segment.totalTimeServed.addAndGet(slot, time);
+        endWrite(segment, slot);
+        allTimeServed.add(time);
+    }
+
+    /**
+     * Sets the party currently inside a dungeon.
+     * @param dungeonID The dungeon identifier.
+     * @param partyID The party identifier (displayed as "Party N").
+     */
+    public void setPartyInside(int dungeonID, int partyID) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        segment.partyInside.set(slot, partyID);
+        endWrite(segment, slot);
+    }
+
+    /**
+     * Marks the dungeons of a run of placed parties as active with their parties.
+     * @param batch Parties whose placement has been recorded.
+     * @param from Index of the first party to apply.
+     * @param count Number of parties to apply.
+     */
+    public void startRuns(PartyBatch batch, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            int dungeonID = batch.getDungeonID(i);
+            Segment segment = segment(dungeonID);
+            int slot = dungeonID & SEGMENT_MASK;
+            beginWrite(segment, slot);
+            segment.partyInside.set(slot, batch.getPartyID(i));
+            setState(segment, slot, STATE_ACTIVE);
+            segment.partiesServed.incrementAndGet(slot);
+            endWrite(segment, slot);
+        }
+        allPartiesServed.add(count);
+    }
+
+    /**
+     * Clears the party currently inside a dungeon.
+     * @param dungeonID The dungeon identifier.
+     */
+    public void clearPartyInside(int dungeonID) {
+        setPartyInside(dungeonID, 0);
+    }
+
+    /**
+     * Returns the name of a dungeon.
+     * @param dungeonID The dungeon identifier.
+     * @return The name set for it, else its generated name once it has been reported (a
+     *         dungeon retired by a shrinking pool keeps it if it served a party), or "Unknown".
+     */
+    public String getDungeonName(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment == null ? "Unknown" : nameOf(segment, dungeonID);
+    }
+
+    private String nameOf(Segment segment, int dungeonID) {
+        int slot = dungeonID & SEGMENT_MASK;
+        AtomicReferenceArray<String> names = segment.names;
+        String name = names == null ? null : names.get(slot);
+        if (name != null) return name;
+        DungeonNameGenerator generator = nameGenerator;
+        // Runs are logged and displayed after the fact, when their dungeon may have been retired.
+        boolean named = segment.state.get(slot) != STATE_UNKNOWN || segment.partiesServed.get(slot) > 0;
+        if (generator == null || !named || dungeonID > generator.getCapacity()) {
+            return "Unknown";
+        }
+        return generator.nameOf(dungeonID);
+    }
+
+    /**
+     * Reads all of a dungeon's fields as of one instant, retrying while a write is in progress.
+     * @param dungeonID The dungeon identifier.
+     * @param out Receives the fields.
+     * @return True if the dungeon has been reported (Active or Empty).
+     */
+    public boolean read(int dungeonID, Snapshot out) {
+        out.dungeonID = dungeonID;
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        if (segment == null) {
+            out.known = false;
+            out.active = false;
+            out.partiesServed = 0;
+            out.totalTimeServed = 0;
+            out.partyInside = 0;
+            out.stateSince = 0;
+            return false;
+        }
+        int slot = dungeonID & SEGMENT_MASK;
+        while (true) {
+            int version = segment.version.get(slot);
+            if ((version & 1) == 0) {
+                int state = segment.state.get(slot);
+                out.partiesServed = segment.partiesServed.get(slot);
+                out.totalTimeServed = segment.totalTimeServed.get(slot);
+                out.partyInside = segment.partyInside.get(slot);
+                out.stateSince = segment.stateSince.get(slot);
+                if (segment.version.get(slot) == version) {
+                    out.known = state != STATE_UNKNOWN;
+                    out.active = state == STATE_ACTIVE;
+                    return out.known;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return The highest dungeon ID that has been reported so far.
+     */
+    public int getHighestDungeonID() {
+        return highestDungeonID.get();
+    }
+
+    /**
+     * @param dungeonID The dungeon identifier.
+     * @return True if the dungeon has been reported (Active or Empty).
+     */
+    public boolean isKnown(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment != null && segment.state.get(dungeonID & SEGMENT_MASK) != STATE_UNKNOWN;
+    }
+
+    /**
+     * @param dungeonID The dungeon identifier.
+     * @return True if a party is currently inside the dungeon.
+     */
+    public boolean isActive(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment != null && segment.state.get(dungeonID & SEGMENT_MASK) == STATE_ACTIVE;
+    }
+
+    /**
+     * @param dungeonID The dungeon identifier.
+     * @return Number of parties the dungeon has served.
+     */
+    public int getPartiesServed(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment == null ? 0 : segment.partiesServed.get(dungeonID & SEGMENT_MASK);
+    }
+
+    /**
+     * @param dungeonID The dungeon identifier.
+     * @return Total time (seconds) the dungeon has served.
+     */
+    public long getTotalTimeServed(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment == null ? 0 : segment.totalTimeServed.get(dungeonID & SEGMENT_MASK);
+    }
+
+    /**
+     * @param dungeonID The dungeon identifier.
+     * @return The party inside the dungeon, or 0 if none.
+     */
+    public int getPartyInside(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment == null ? 0 : segment.partyInside.get(dungeonID & SEGMENT_MASK);
+    }
+
+    /**
+     * @param dungeonID The dungeon identifier.
+     * @return When (epoch millis) the dungeon last became Active or Empty.
+     */
+    public long getStateSince(int dungeonID) {
+        Segment segment = segments.get(dungeonID >>> SEGMENT_BITS);
+        return segment == null ? 0 : segment.stateSince.get(dungeonID & SEGMENT_MASK);
+    }
+
+    /**
+     * @return Number of dungeons that have been reported.
+     */
+    public int getKnownDungeonCount() {
+        return knownDungeons.get();
+    }
+
+    /**
+     * @return Number of dungeons with a party inside.
+     */
+    public int getActiveDungeonCount() {
+        return activeDungeons.get();
+    }
+
+    /**
+     * @return Parties served across all dungeons.
+     */
+    public long getAllPartiesServed() {
+        return allPartiesServed.sum();
+    }
+
+    /**
+     * @return Time (seconds) served across all dungeons.
+     */
+    public long getAllTimeServed() {
+        return allTimeServed.sum();
+    }
+
+    /**
+     * @return The in-memory history of finished runs.
+     */
+    public RunHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Formats a finished run the way it is shown and logged as text.
+     * @param partyID The party identifier.
+     * @param dungeonID The dungeon identifier.
+     * @param time The time (in seconds) the party took.
+     * @return The line.
+     */
+    public String formatRun(int partyID, int dungeonID, int time) {
+        return "[Party ID: " + partyID + "] - Finished at Dungeon [" + getDungeonName(dungeonID)
+                + " (ID: " + dungeonID + ")]: Time [" + time + " seconds]";
+    }
+
+    /**
+     * @return The leftover player information.
+     */
+    public String getLeftoverInfo() {
+        return leftoverInfo;
+    }
+
+    /**
+     * @return The renderer used by the live display.
+     */
+    public StatusRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Records a finished run in the history and logs it.
+     * The run is assumed to have finished just now.
+     * @param partyID The unique party identifier.
+     * @param dungeonID The dungeon identifier.
+     * @param time The time (in seconds) the party took.
+     */
+    public void addPartyStatus(int partyID, int dungeonID, int time) {
+        addPartyStatus(partyID, dungeonID, time, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a finished run in the history and logs it. If the log writer has failed, the
+     * error is reported once and logging stops; runs still complete.
+     * @param partyID The unique party identifier.
+     * @param dungeonID The dungeon identifier.
+     * @param time The time (in seconds) the party took.
+     * @param finishMillis When the run finished (epoch or simulated milliseconds).
+     */
+    public void addPartyStatus(int partyID, int dungeonID, int time, long finishMillis) {
+        long startMillis = finishMillis - time * 1000L;
+        history.record(partyID, dungeonID, startMillis, time);
+        PartyLogWriter writer = logWriter;
+        if (writer != null) {
+            try {
+                writer.append(partyID, dungeonID, startMillis, finishMillis, time);
+            } catch (UncheckedIOException | IllegalStateException e) {
+                if (logWriter == writer) {
+                    logWriter = null;
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds counters from a logged run and adds it to the history without logging it again.
+     * @param partyID The party identifier.
+     * @param dungeonID The dungeon identifier.
+     * @param startMillis When the run started.
+     * @param time The time (in seconds) the party took.
+     */
+    public void replayRun(int partyID, int dungeonID, long startMillis, int time) {
+        replayRun(dungeonID, time);
+        history.record(partyID, dungeonID, startMillis, time);
+    }
+
+    /**
+     * Rebuilds counters from a logged run without logging it again or adding it to the history.
+     * @param dungeonID The dungeon identifier.
+     * @param time The time (in seconds) the party took.
+     */
+    public void replayRun(int dungeonID, int time) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        if (segment.state.get(slot) == STATE_UNKNOWN) {
+            setState(segment, slot, STATE_EMPTY);
+        }
+        segment.partiesServed.incrementAndGet(slot);
+        segment.totalTimeServed.addAndGet(slot, time);
+        endWrite(segment, slot);
+        allPartiesServed.increment();
+        allTimeServed.add(time);
+    }
+
+    /**
+     * Sets a dungeon's counters to values restored from a checkpoint.
+     * @param dungeonID The dungeon identifier.
+     * @param partiesServed Parties served so far.
+     * @param totalTimeServed Total time served so far (seconds).
+     */
+    public void restoreCounters(int dungeonID, int partiesServed, long totalTimeServed) {
+        Segment segment = segment(dungeonID);
+        int slot = dungeonID & SEGMENT_MASK;
+        beginWrite(segment, slot);
+        if (segment.state.get(slot) == STATE_UNKNOWN) {
+            setState(segment, slot, STATE_EMPTY);
+        }
+        int servedBefore = segment.partiesServed.getAndSet(slot, partiesServed);
+        long timeBefore = segment.totalTimeServed.getAndSet(slot, totalTimeServed);
+        endWrite(segment, slot);
+        allPartiesServed.add(partiesServed - servedBefore);
+        allTimeServed.add(totalTimeServed - timeBefore);
+    }
+
+    /**
+     * Writes any pending log entries to disk and closes the log file.
+     */
+    public void closeLog() {
+        PartyLogWriter writer = logWriter;
+        if (writer != null) {
+            logWriter = null;
+            try {
+                writer.close();
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Sets the leftover player information to be displayed.
+     * @param info A formatted string showing leftover player counts.
+     */
+    public void setLeftoverInfo(String info) {
+        leftoverInfo = info;
+        events.refresh();
+    }
+
+    /**
+     * @return The lifecycle events of the dungeons reporting here; the display redraws on them.
+     */
+    public LifecycleEvents getEvents() {
+        return events;
+    }
+
+    /**
+     * Stops the live update loop and waits for it to draw its final frame.
+     */
+    public void stopUpdating() {
+        running = false;
+        events.refresh();
+        if (isAlive() && Thread.currentThread() != this) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Prints the status table once, without clearing the console.
+     * Used when the live update loop is not running (e.g. simulation mode).
+     */
+    public void printSnapshot() {
+        renderer.renderFull(System.out);
+    }
+
+    /**
+     * Continuously refreshes the live status display. Only lines that changed since
+     * the previous frame are written (see StatusRenderer).
+     */
+    @Override
+    public void run() {
+        long seen = events.getSequence();
+        while (running) {
+            renderer.render(System.out);
+            long rendered = System.currentTimeMillis();
+            try {
+                // Redraw as soon as something happens (bursts coalesce into one frame per
+                // minRefreshMillis), and at least every refreshMillis.
+                seen = events.awaitEvent(seen, refreshMillis);
+                long pause = minRefreshMillis - (System.currentTimeMillis() - rendered);
+                if (pause > 0 && running) {
+                    Thread.sleep(pause);
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        renderer.render(System.out);
+    }
+}
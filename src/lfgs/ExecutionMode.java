@@ -0,0 +1,56 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Selects how dungeon runs are executed by the DungeonManager.
+ * TIMER schedules each run as a completion event on a small shared scheduler,
+ * THREAD keeps the original one-thread-per-run behaviour, and VIRTUAL runs the
+ * same blocking code on virtual threads. SIMULATION skips the DungeonManager and
+ * replays the whole run on a virtual clock (see DungeonSimulator).
+ */
+public enum ExecutionMode {
+    TIMER,
+    THREAD,
+    VIRTUAL,
+    SIMULATION;
+
+    /**
+     * Returns the factory used to start dungeon runs and their cleanup work.
+     * Only meaningful for the thread-based modes.
+     * @return A platform or virtual thread factory.
+     * @throws IllegalStateException if virtual threads are not available on this JVM.
+     */
+    public ThreadFactory threadFactory() {
+        if (this != VIRTUAL) {
+            return Thread::new;
+        }
+        // Looked up reflectively so the project still compiles on JDKs without Thread.ofVirtual().
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available on this JVM "
+                    + "(requires JDK 21, or JDK 19/20 with --enable-preview).", e);
+        }
+    }
+
+    /**
+     * Parses a mode name (case-insensitive).
+     * @param name The mode name, e.g. "timer" or "thread".
+     * @return The matching ExecutionMode.
+     * @throws IllegalArgumentException if the name does not match any mode.
+     */
+    public static ExecutionMode fromString(String name) {
+        for (ExecutionMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution mode: " + name);
+    }
+}
@@ -0,0 +1,237 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Non-interactive entry point for soak and performance runs. Players come from a
+ * {@link LoadGenerator} instead of the prompts; matchmaking runs alongside the arrivals,
+ * and once every party has finished a JSON summary of throughput, wait times and
+ * utilization is written. See {@link LoadConfig} for the settings.
+ */
+public class HeadlessRunner {
+    private static final int[] PARTY_NEEDS = {1, 1, 3};
+
+    public static void main(String[] args) {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Invalid configuration: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        MatchmakingMetrics metrics = new MatchmakingMetrics();
+        PartyQueue queue;
+        if ("concurrent".equals(config.getQueue())) {
+            queue = ConcurrentQueueManager.fromSystemProperties(metrics);
+        } else if ("skill".equals(config.getQueue())) {
+            queue = SkillQueueManager.fromSystemProperties(metrics);
+        } else if ("priority".equals(config.getQueue())) {
+            queue = PriorityQueueManager.fromSystemProperties(metrics);
+        } else {
+            queue = new QueueManager(metrics);
+        }
+        DungeonStatus dungeonStatus = new DungeonStatus(config.getDungeons(), config.isLogging());
+        metrics.setRunHistory(dungeonStatus.getHistory());
+        DungeonManager dungeonManager = new DungeonManager(config.getDungeons(), config.getMinTime(),
+                config.getMaxTime(), dungeonStatus, config.getMode(), metrics);
+
+        // The locked queue reports its leftovers itself, flex players included.
+        QueueManager lockedQueue = queue instanceof QueueManager ? (QueueManager) queue : null;
+        MatchmakingPipeline pipeline = null;
+        PlayerQueue players = queue;
+        if (config.isPipeline()) {
+            pipeline = new MatchmakingPipeline((QueueManager) queue, dungeonManager, config.getIntake(),
+                    config.getParties(), config.getWaiting(), config.getBatch());
+            players = pipeline;
+            pipeline.start();
+        }
+
+        LoadGenerator generator = new LoadGenerator(players, config);
+        Thread arrivals = new Thread(generator, "lfg-load-generator");
+        long start = System.nanoTime();
+        arrivals.start();
+
+        if (pipeline != null) {
+            // The pipeline's own stages do the matching; back-pressure slows the generator down.
+            // Arrivals shed by a full pool, or still held back when the run time is up, are
+            // turned away (counted as rejected).
+            try {
+                arrivals.join(config.getDuration() * 1000L + 1);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            pipeline.close();
+            join(arrivals);
+            pipeline.closeAndDrain();
+        } else {
+            // Match while players are still arriving, then drain whatever can still form a party.
+            PartyBatch batch = new PartyBatch(config.getBatch());
+            while (!generator.isDone() || queue.canFormParty() || LFGSystem.isMatchPending(queue)) {
+                batch.clear();
+                if (queue.takeParties(batch, batch.capacity()) == 0) {
+                    LockSupport.parkNanos(1_000_000);
+                } else {
+                    dungeonManager.assignParties(batch);
+                }
+            }
+            join(arrivals);
+        }
+        // A run counts as finished only once it has been recorded.
+        try {
+            dungeonStatus.getEvents().awaitDrained();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        dungeonManager.shutdown();
+        dungeonStatus.closeLog();
+
+        String summary = summarize(config, generator, metrics, dungeonStatus, lockedQueue, elapsedSeconds);
+        if ("-".equals(config.getSummary())) {
+            System.out.println(summary);
+        } else {
+            try (Writer writer = new FileWriter(config.getSummary())) {
+                writer.write(summary);
+                writer.write('\n');
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builds the JSON summary of a finished run.
+     * Utilization is dungeon-seconds served over dungeon-seconds available.
+     */
+    static String summarize(LoadConfig config, LoadGenerator generator, MatchmakingMetrics metrics,
+                            DungeonStatus dungeonStatus, QueueManager lockedQueue, double elapsedSeconds) {
+        long parties = metrics.getCompletedRuns();
+        StringBuilder sb = new StringBuilder("{");
+        field(sb, "mode", '"' + config.getMode().name().toLowerCase() + '"');
+        field(sb, "queue", '"' + config.getQueue() + '"');
+        field(sb, "pipeline", Boolean.toString(config.isPipeline()));
+        field(sb, "arrivals", '"' + config.getArrivals().name().toLowerCase() + '"');
+        field(sb, "rate", number(config.getRate()));
+        field(sb, "dungeons", Integer.toString(config.getDungeons()));
+        field(sb, "durationSeconds", Integer.toString(config.getDuration()));
+        field(sb, "elapsedSeconds", number(elapsedSeconds));
+
+        StringBuilder players = new StringBuilder("{");
+        StringBuilder leftover = new StringBuilder("{");
+        long total = 0;
+        for (int r = 0; r < 3; r++) {
+            long accepted = generator.getAccepted(r);
+            total += accepted;
+            field(players, MatchmakingMetrics.ROLES[r], Long.toString(accepted));
+            field(leftover, MatchmakingMetrics.ROLES[r], Long.toString(lockedQueue != null
+                    ? lockedQueue.getWaitingCount(1 << r) : accepted - parties * PARTY_NEEDS[r]));
+        }
+        // Flex players (registered for two roles) by role mask, when there are any.
+        for (int mask : new int[]{3, 5, 6}) {
+            long accepted = generator.getAcceptedByMask(mask);
+            if (accepted == 0) continue;
+            total += accepted;
+            field(players, QueueManager.roleNames(mask), Long.toString(accepted));
+            field(leftover, QueueManager.roleNames(mask), Long.toString(lockedQueue.getWaitingCount(mask)));
+        }
+        field(players, "rejected", Long.toString(generator.getRejected()));
+        field(players, "total", Long.toString(total));
+        field(sb, "players", close(players));
+        field(sb, "leftover", close(leftover));
+
+        field(sb, "partiesServed", Long.toString(parties));
+        field(sb, "throughputPartiesPerSecond", number(parties / elapsedSeconds));
+        field(sb, "utilization", number(dungeonStatus.getAllTimeServed()
+                / (config.getDungeons() * elapsedSeconds)));
+        field(sb, "placement", '"' + System.getProperty("lfg.placement", "first") + '"');
+        field(sb, "dungeonLoadSeconds", loadSpread(dungeonStatus));
+        field(sb, "recentRuns", recentRuns(dungeonStatus.getHistory()));
+
+        StringBuilder queueWait = new StringBuilder("{");
+        for (int r = 0; r < 3; r++) {
+            field(queueWait, MatchmakingMetrics.ROLES[r], histogram(metrics.getQueueWait(r)));
+        }
+        field(sb, "queueWaitMillis", close(queueWait));
+        field(sb, "slotWaitMillis", histogram(metrics.getSlotWait()));
+        return close(sb);
+    }
+
+    /**
+     * Spread of the time served over the dungeons in the pool: how evenly placement shared
+     * the work (cv is the standard deviation over the mean).
+     */
+    private static String loadSpread(DungeonStatus dungeonStatus) {
+        long min = Long.MAX_VALUE, max = 0, count = 0;
+        double sum = 0, sumSquares = 0;
+        for (int id = 1; id <= dungeonStatus.getHighestDungeonID(); id++) {
+            if (!dungeonStatus.isKnown(id)) continue;
+            long served = dungeonStatus.getTotalTimeServed(id);
+            min = Math.min(min, served);
+            max = Math.max(max, served);
+            sum += served;
+            sumSquares += (double) served * served;
+            count++;
+        }
+        double mean = count == 0 ? 0 : sum / count;
+        double deviation = count == 0 ? 0 : Math.sqrt(Math.max(0, sumSquares / count - mean * mean));
+        StringBuilder sb = new StringBuilder("{");
+        field(sb, "dungeons", Long.toString(count));
+        field(sb, "min", Long.toString(count == 0 ? 0 : min));
+        field(sb, "max", Long.toString(max));
+        field(sb, "mean", number(mean));
+        field(sb, "cv", number(mean == 0 ? 0 : deviation / mean));
+        return close(sb);
+    }
+
+    /**
+     * Clear times of the runs still held in the in-memory history (the most recent ones).
+     */
+    private static String recentRuns(RunHistory history) {
+        StringBuilder sb = new StringBuilder("{");
+        field(sb, "held", Integer.toString(history.size()));
+        field(sb, "meanClearSeconds", number(history.meanClearTime(0)));
+        field(sb, "p95ClearSeconds", Integer.toString(Math.max(0, history.clearTimePercentile(0, 95))));
+        return close(sb);
+    }
+
+    private static String histogram(LatencyHistogram histogram) {
+        StringBuilder sb = new StringBuilder("{");
+        field(sb, "count", Long.toString(histogram.getCount()));
+        field(sb, "mean", number(histogram.getMeanMillis()));
+        field(sb, "p50", number(histogram.getP50Millis()));
+        field(sb, "p90", number(histogram.getP90Millis()));
+        field(sb, "p99", number(histogram.getP99Millis()));
+        field(sb, "max", number(histogram.getMaxMillis()));
+        return close(sb);
+    }
+
+    private static void field(StringBuilder sb, String name, String value) {
+        if (sb.length() > 1) sb.append(',');
+        sb.append('"').append(name).append("\":").append(value);
+    }
+
+    private static String close(StringBuilder sb) {
+        return sb.append('}').toString();
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return "null";
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
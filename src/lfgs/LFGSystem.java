@@ -0,0 +1,315 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Main class that ties together the dungeon queuing system.
+ * It collects user input, starts live status updates, processes matchmaking,
+ * displays leftover player counts, and stops live updates when processing is complete.
+ */
+public class LFGSystem {
+    public static void main(String[] args) {
+        // Any --key=value arguments switch to a non-interactive run driven by a load generator.
+        if (args.length > 0) {
+            HeadlessRunner.main(args);
+            return;
+        }
+
+        // Metrics are always available over JMX; -Dlfg.metrics.port also serves them over HTTP.
+        MatchmakingMetrics metrics = new MatchmakingMetrics();
+        metrics.registerMBeans();
+        MetricsHttpServer metricsServer = startMetricsServer(metrics);
+
+        // Queue implementation can be selected with -Dlfg.queue=locked|concurrent|skill|priority
+        // (default: locked; -Dlfg.queue.capacity sets the concurrent queue's players per role);
+        // -Dlfg.shards=N (N > 1) splits matchmaking and the dungeon pool into N shards instead.
+        int shards = Integer.getInteger("lfg.shards", 1);
+        ShardedMatchmaker sharded = shards > 1 ? new ShardedMatchmaker(shards, metrics) : null;
+        PartyQueue queue;
+        if (sharded != null) {
+            queue = sharded;
+        } else if ("concurrent".equalsIgnoreCase(System.getProperty("lfg.queue", "locked"))) {
+            queue = ConcurrentQueueManager.fromSystemProperties(metrics);
+        } else if ("skill".equalsIgnoreCase(System.getProperty("lfg.queue", "locked"))) {
+            queue = SkillQueueManager.fromSystemProperties(metrics);
+        } else if ("priority".equalsIgnoreCase(System.getProperty("lfg.queue", "locked"))) {
+            queue = PriorityQueueManager.fromSystemProperties(metrics);
+        } else {
+            queue = new QueueManager(metrics);
+        }
+
+        // -Dlfg.pipeline=true matches and dispatches parties while players are still being added.
+        if (Boolean.getBoolean("lfg.pipeline")) {
+            runPipeline(metrics);
+            if (metricsServer != null) metricsServer.stop();
+            return;
+        }
+
+        // -Dlfg.checkpoint=file saves queue and dungeon state periodically (locked queue only)
+        // and resumes from that file on the next start instead of asking for input.
+        String checkpointFile = System.getProperty("lfg.checkpoint");
+        if (checkpointFile != null && !(queue instanceof QueueManager)) {
+            System.out.println("Checkpoints need the locked queue; continuing without them.");
+            checkpointFile = null;
+        }
+        DungeonCheckpoint.State restored = checkpointFile == null ? null : loadCheckpoint(Path.of(checkpointFile));
+
+        int maxDungeons;
+        int minTime;
+        int maxTime;
+        if (restored != null) {
+            ((QueueManager) queue).restoreFrom(restored);
+            maxDungeons = restored.maxDungeons;
+            minTime = restored.minTime;
+            maxTime = restored.maxTime;
+        } else {
+            // Collect user input (players and dungeon settings)
+            UserInput.collectPlayerData(queue);
+
+            maxDungeons = UserInput.getNumDungeons();
+            minTime = UserInput.getMinTime();
+            maxTime = UserInput.getMaxTime();
+        }
+
+        // -Dlfg.cluster.workers=N hosts the dungeons in N ClusterWorker processes instead;
+        // the number of dungeons is then the total the workers advertise.
+        int clusterWorkers = Integer.getInteger("lfg.cluster.workers", 0);
+        if (clusterWorkers > 0) {
+            runCoordinator(queue, clusterWorkers, minTime, maxTime, metrics);
+            if (metricsServer != null) metricsServer.stop();
+            return;
+        }
+
+        // Execution mode can be selected with -Dlfg.mode=timer|thread|virtual|simulation (default: timer).
+        ExecutionMode mode = ExecutionMode.fromString(System.getProperty("lfg.mode", "timer"));
+        DungeonStatus dungeonStatus = new DungeonStatus(maxDungeons);
+        metrics.setRunHistory(dungeonStatus.getHistory());
+
+        if (mode == ExecutionMode.SIMULATION) {
+            runSimulation(queue, maxDungeons, minTime, maxTime, dungeonStatus);
+            if (metricsServer != null) metricsServer.stop();
+            return;
+        }
+
+        DungeonManager dungeonManager = sharded != null ? null
+                : new DungeonManager(maxDungeons, minTime, maxTime, dungeonStatus, mode, metrics);
+        Checkpointer checkpointer = null;
+        if (checkpointFile != null && dungeonManager != null) {
+            if (restored != null) {
+                dungeonManager.restore(restored);
+            }
+            checkpointer = new Checkpointer(Path.of(checkpointFile), (QueueManager) queue, dungeonManager,
+                    maxDungeons, Long.getLong("lfg.checkpoint.millis", 1000L),
+                    Boolean.parseBoolean(System.getProperty("lfg.checkpoint.sync", "true")));
+            checkpointer.start();
+        }
+
+        // Start the live-updating DungeonStatus thread.
+        dungeonStatus.start();
+
+        // Process matchmaking: form parties and assign them to dungeons in batches
+        // (batch size can be set with -Dlfg.batch, default: 64).
+        int batchSize = Math.max(1, Integer.getInteger("lfg.batch", 64));
+        if (sharded != null) {
+            sharded.start(maxDungeons, minTime, maxTime, dungeonStatus, mode, batchSize);
+        } else {
+            // A skill queue may hold players who match only once their tolerance has widened.
+            PartyBatch batch = new PartyBatch(batchSize);
+            while (queue.canFormParty() || isMatchPending(queue)) {
+                // Parties are taken only for free dungeons, and checkpoints wait until they are placed.
+                int take = Math.min(batchSize, awaitFreeDungeons(dungeonManager, dungeonStatus.getEvents()));
+                long seen = dungeonStatus.getEvents().getSequence();
+                if (dungeonManager.takeAndAssignParties(queue, batch, take) == 0) {
+                    awaitMatch(queue, dungeonStatus.getEvents(), seen);
+                }
+            }
+        }
+
+        if (sharded != null) {
+            finish(queue, dungeonStatus, sharded::shutdown);
+        } else {
+            finish(queue, dungeonStatus, dungeonManager::shutdown);
+        }
+        if (checkpointer != null) {
+            // The run finished cleanly; there is nothing to resume.
+            checkpointer.stop(true);
+        }
+        if (metricsServer != null) metricsServer.stop();
+    }
+
+    /**
+     * Waits until at least one dungeon in the pool is free.
+     * @return The number of free dungeons.
+     */
+    private static int awaitFreeDungeons(DungeonManager dungeonManager, LifecycleEvents events) {
+        int free;
+        long seen = events.getSequence();
+        while ((free = dungeonManager.getMaxDungeons() - dungeonManager.getBusyDungeons()) == 0) {
+            try {
+                // A dungeon is released before its finish is published.
+                seen = events.awaitEvent(seen, 1000);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Waits until a queue that could not form a party might: until a skill queue's rating
+     * windows next widen, or until the next lifecycle event otherwise.
+     */
+    private static void awaitMatch(PartyQueue queue, LifecycleEvents events, long seen) {
+        long waitMillis = 60_000;
+        if (queue instanceof SkillQueueManager) {
+            long nanos = ((SkillQueueManager) queue).nanosUntilWider();
+            waitMillis = Math.min(waitMillis, TimeUnit.NANOSECONDS.toMillis(nanos) + 1);
+        }
+        try {
+            events.awaitEvent(seen, waitMillis);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a checkpoint left by an earlier run, if any.
+     * @return The restored state, or null to start fresh.
+     */
+    private static DungeonCheckpoint.State loadCheckpoint(Path path) {
+        try {
+            long start = System.nanoTime();
+            DungeonCheckpoint.State state = DungeonCheckpoint.load(path);
+            if (state != null) {
+                System.out.println("Resuming from checkpoint " + path + " (loaded in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms): " + state.maxDungeons + " dungeons, "
+                        + state.getRunsInProgress() + " runs in progress, " + state.queued + " players queued.");
+            }
+            return state;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return True if the queue is a skill queue that will be able to form a party by waiting.
+     */
+    static boolean isMatchPending(PartyQueue queue) {
+        return queue instanceof SkillQueueManager && ((SkillQueueManager) queue).isMatchPending();
+    }
+
+    /**
+     * Prints the leftovers, waits until every party handed to the dungeons has finished,
+     * shows the final status and then stops live updates and the dungeon pool.
+     */
+    private static void finish(PlayerQueue queue, DungeonStatus dungeonStatus, Runnable shutdown) {
+        // Print leftover players (only counts)
+        System.out.println("\n=== Leftover Players ===");
+        System.out.println(queue.getLeftoverPlayers());
+
+        // Wait until all dungeons are free; a run only counts as finished once its status is recorded.
+        try {
+            dungeonStatus.getEvents().awaitDrained();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        // Update leftover player info in DungeonStatus, draw the final frame and stop live updates.
+        dungeonStatus.setLeftoverInfo(queue.getLeftoverPlayers());
+        dungeonStatus.stopUpdating();
+        shutdown.run();
+        dungeonStatus.closeLog();
+    }
+
+    /**
+     * Runs the streaming pipeline: the dungeon pool is up before the player counts are
+     * asked for, and parties are formed and dispatched as the players arrive.
+     */
+    private static void runPipeline(MatchmakingMetrics metrics) {
+        UserInput.collectDungeonSettings();
+        int maxDungeons = UserInput.getNumDungeons();
+        ExecutionMode mode = ExecutionMode.fromString(System.getProperty("lfg.mode", "timer"));
+        if (mode == ExecutionMode.SIMULATION) {
+            System.out.println("Simulation mode cannot be combined with the pipeline.");
+            return;
+        }
+
+        DungeonStatus dungeonStatus = new DungeonStatus(maxDungeons);
+        metrics.setRunHistory(dungeonStatus.getHistory());
+        DungeonManager dungeonManager = new DungeonManager(maxDungeons, UserInput.getMinTime(),
+                UserInput.getMaxTime(), dungeonStatus, mode, metrics);
+        MatchmakingPipeline pipeline = MatchmakingPipeline.fromSystemProperties(new QueueManager(metrics),
+                dungeonManager, maxDungeons);
+        pipeline.start();
+
+        UserInput.collectPlayers(pipeline);
+        dungeonStatus.start();
+        pipeline.closeAndDrain();
+        finish(pipeline, dungeonStatus, dungeonManager::shutdown);
+    }
+
+    /**
+     * Runs matchmaking here and the dungeons in separate ClusterWorker processes.
+     * The port can be set with -Dlfg.cluster.port (default: 7450).
+     */
+    private static void runCoordinator(PartyQueue queue, int workerCount, int minTime, int maxTime,
+                                       MatchmakingMetrics metrics) {
+        int port = Integer.getInteger("lfg.cluster.port", ClusterProtocol.DEFAULT_PORT);
+        try {
+            ClusterCoordinator coordinator = new ClusterCoordinator(port, workerCount, metrics);
+            DungeonStatus dungeonStatus = new DungeonStatus(coordinator.getTotalCapacity());
+            metrics.setRunHistory(dungeonStatus.getHistory());
+            coordinator.start(dungeonStatus, minTime, maxTime);
+            dungeonStatus.start();
+
+            int batchSize = Math.max(1, Integer.getInteger("lfg.batch", 64));
+            coordinator.dispatch(queue, batchSize);
+            finish(queue, dungeonStatus, coordinator::shutdown);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Starts the Prometheus endpoint if -Dlfg.metrics.port is set.
+     * @return The running server, or null if disabled or the port could not be bound.
+     */
+    private static MetricsHttpServer startMetricsServer(MatchmakingMetrics metrics) {
+        Integer port = Integer.getInteger("lfg.metrics.port");
+        if (port == null) return null;
+        try {
+            return new MetricsHttpServer(port, metrics);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Runs the whole queue through the discrete-event simulator and prints the results.
+     * The seed can be set with -Dlfg.seed (default: 42).
+     */
+    private static void runSimulation(PartyQueue queue, int maxDungeons, int minTime, int maxTime,
+                                      DungeonStatus dungeonStatus) {
+        long seed = Long.getLong("lfg.seed", 42L);
+        DungeonSimulator simulator = new DungeonSimulator(maxDungeons, minTime, maxTime, dungeonStatus, seed);
+
+        long start = System.nanoTime();
+        long simulatedTime = simulator.run(queue);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        dungeonStatus.setLeftoverInfo(queue.getLeftoverPlayers());
+        dungeonStatus.printSnapshot();
+        dungeonStatus.closeLog();
+        System.out.println("Simulation seed: " + seed);
+        System.out.println("Parties served: " + simulator.getPartyCount());
+        System.out.println("Simulated time: " + simulatedTime + " sec");
+        System.out.println("Wall-clock time: " + elapsedMillis + " ms");
+    }
+}
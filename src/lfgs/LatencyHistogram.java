@@ -0,0 +1,123 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free latency histogram in nanoseconds.
+ * Buckets are log-linear: each power of two is split into 8 sub-buckets, so any
+ * recorded value is reported within about 12.5% of its true value.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency.
+     * @param nanos The latency in nanoseconds (negative values count as 0).
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records the same latency several times.
+     * @param nanos The latency in nanoseconds (negative values count as 0).
+     * @param times How many observations to add.
+     */
+    public void record(long nanos, int times) {
+        long value = Math.max(0, nanos);
+        counts.addAndGet(bucketOf(value), times);
+        count.addAndGet(times);
+        sum.addAndGet(value * times);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Maps a value to its bucket index.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Returns the highest value that maps to a bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        long lower = (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Returns a percentile of the recorded values.
+     * @param percentile Percentile between 0 and 100.
+     * @return The value in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentileNanos(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return Sum of all recorded values in nanoseconds.
+     */
+    public long getSumNanos() {
+        return sum.get();
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long total = count.get();
+        return total == 0 ? 0 : sum.get() / 1e6 / total;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileNanos(50) / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentileNanos(90) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileNanos(99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return max.get() / 1e6;
+    }
+}
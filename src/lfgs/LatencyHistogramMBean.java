@@ -0,0 +1,21 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. All times are in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
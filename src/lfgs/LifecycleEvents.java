@@ -0,0 +1,236 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event bus for the life of a party: formed (handed to a dungeon pool), dungeon started,
+ * dungeon finished, and pool drained (every formed party has finished).
+ * Besides notifying listeners it counts the events, so callers can wait on them like a
+ * latch ({@link #awaitDrained()}) or a phaser ({@link #awaitEvent(long, long)}) instead of
+ * sleeping and polling. Publishing only touches a monitor when someone is waiting.
+ */
+public class LifecycleEvents {
+
+    /**
+     * Receives lifecycle events on the thread that published them; keep the work short.
+     */
+    public interface Listener {
+        /**
+         * @param count Number of parties handed to a dungeon pool.
+         */
+        default void partiesFormed(int count) {
+        }
+
+        /**
+         * @param dungeonID The dungeon the party entered.
+         * @param partyID The party inside.
+         */
+        default void dungeonStarted(int dungeonID, int partyID) {
+        }
+
+        /**
+         * Called once the run has been recorded in the status and log.
+         * @param dungeonID The dungeon that finished.
+         * @param partyID The party that was inside.
+         * @param clearTime The time (in seconds) the run took.
+         */
+        default void dungeonFinished(int dungeonID, int partyID, int clearTime) {
+        }
+
+        /**
+         * Called when the last formed party finishes and no dungeon is running.
+         */
+        default void poolDrained() {
+        }
+    }
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong formed = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object waitLock = new Object();
+
+    /**
+     * @param listener Receives every event from now on.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener A listener added earlier.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publishes that parties were handed to a dungeon pool. Publish only parties that are sure
+     * to run (e.g. once placed), since {@link #awaitDrained()} waits for each to finish.
+     * @param count Number of parties.
+     */
+    public void partiesFormed(int count) {
+        formed.addAndGet(count);
+        for (Listener listener : listeners) {
+            listener.partiesFormed(count);
+        }
+        signal();
+    }
+
+    /**
+     * Publishes that parties handed to a dungeon pool will never run to the end, e.g. because
+     * the process running them was lost, so {@link #awaitDrained()} stops waiting for them.
+     * @param count Number of parties.
+     */
+    public void partiesLost(int count) {
+        if (count <= 0) return;
+        if (formed.addAndGet(-count) == finished.get()) {
+            for (Listener listener : listeners) {
+                listener.poolDrained();
+            }
+        }
+        signal();
+    }
+
+    /**
+     * Publishes that a party entered a dungeon.
+     * @param dungeonID The dungeon.
+     * @param partyID The party.
+     */
+    public void dungeonStarted(int dungeonID, int partyID) {
+        started.incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.dungeonStarted(dungeonID, partyID);
+        }
+        signal();
+    }
+
+    /**
+     * Publishes that a run finished and has been recorded, and that the pool drained if it
+     * was the last one.
+     * @param dungeonID The dungeon.
+     * @param partyID The party.
+     * @param clearTime The time (in seconds) the run took.
+     */
+    public void dungeonFinished(int dungeonID, int partyID, int clearTime) {
+        long done = finished.incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.dungeonFinished(dungeonID, partyID, clearTime);
+        }
+        if (done == formed.get()) {
+            for (Listener listener : listeners) {
+                listener.poolDrained();
+            }
+        }
+        signal();
+    }
+
+    /**
+     * Wakes anyone waiting in {@link #awaitEvent} without publishing anything, e.g. after the
+     * status changed in a way the display should show at once.
+     */
+    public void refresh() {
+        signal();
+    }
+
+    /**
+     * Waits until every party formed so far has finished. Returns at once if none is out.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitDrained() throws InterruptedException {
+        awaitDrained(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits until every party formed so far has finished, or the time runs out.
+     * @param timeout Maximum time to wait.
+     * @param unit Unit of the timeout.
+     * @return True if drained; false on timeout.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE >> 1);
+        synchronized (waitLock) {
+            waiters.incrementAndGet();
+            try {
+                while (finished.get() < formed.get()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) return false;
+                    TimeUnit.NANOSECONDS.timedWait(waitLock, remaining);
+                }
+                return true;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Waits for the next event after the one seen last, or until the time runs out.
+     * @param seen The sequence number returned by the previous call (or {@link #getSequence()}).
+     * @param timeoutMillis Maximum time to wait.
+     * @return The current sequence number; equal to seen on timeout.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public long awaitEvent(long seen, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (waitLock) {
+            waiters.incrementAndGet();
+            try {
+                long current;
+                while ((current = sequence.get()) == seen) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    TimeUnit.NANOSECONDS.timedWait(waitLock, remaining);
+                }
+                return current;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return Number of events published so far (refreshes included).
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * @return Parties handed to a dungeon pool so far.
+     */
+    public long getFormed() {
+        return formed.get();
+    }
+
+    /**
+     * @return Runs started so far.
+     */
+    public long getStarted() {
+        return started.get();
+    }
+
+    /**
+     * @return Runs finished so far.
+     */
+    public long getFinished() {
+        return finished.get();
+    }
+
+    private void signal() {
+        sequence.incrementAndGet();
+        if (waiters.get() > 0) {
+            synchronized (waitLock) {
+                waitLock.notifyAll();
+            }
+        }
+    }
+}
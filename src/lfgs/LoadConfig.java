@@ -0,0 +1,254 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+/**
+ * Settings for a headless run, read from --key=value arguments and an optional
+ * properties file given with --config=path (arguments override the file).
+ * <pre>
+ * dungeons   number of dungeon instances          (default 64)
+ * minTime    minimum clear time, seconds          (default 0)
+ * maxTime    maximum clear time, seconds          (default 1)
+ * mode       timer|thread|virtual                 (default timer)
+ * queue      locked|concurrent|skill|priority     (default locked; skill is tuned with -Dlfg.skill.*,
+ *                                                 priority with -Dlfg.priority.*)
+ * rate       player arrivals per second           (default 1000)
+ * duration   seconds of arrivals                  (default 10)
+ * arrivals   constant|poisson|bursty              (default poisson)
+ * burstSize  players per burst when bursty        (default 100)
+ * mix        Tank:Healer:DPS arrival weights      (default 1:1:3)
+ * flex       share of players who also accept a second role (default 0; locked queue only)
+ * seed       random seed for arrivals             (default 42)
+ * batch      parties formed per matchmaking pass  (default 64)
+ * pipeline   true to run the streaming pipeline   (default false)
+ * intake     pipeline: arrivals buffered          (default 4096)
+ * parties    pipeline: formed parties buffered    (default 2 x dungeons)
+ * waiting    pipeline: players in the role queues before arrivals for plentiful roles are turned away (default 65536)
+ * log        true to write the party_status log   (default false)
+ * summary    file for the JSON summary, - for stdout (default -)
+ * </pre>
+ * Unlike the interactive prompts, clear times are not capped.
+ */
+public class LoadConfig {
+    private final Properties properties = new Properties();
+
+    /**
+     * Builds a configuration from command-line arguments.
+     * @param args Arguments of the form --key=value.
+     * @return The configuration.
+     * @throws IOException if the --config file cannot be read.
+     * @throws IllegalArgumentException if an argument is malformed or a value is invalid.
+     */
+    public static LoadConfig parse(String[] args) throws IOException {
+        LoadConfig config = new LoadConfig();
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            overrides.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String file = overrides.getProperty("config");
+        if (file != null) {
+            try (Reader reader = new FileReader(file)) {
+                config.properties.load(reader);
+            }
+        }
+        config.properties.putAll(overrides);
+        config.validate();
+        return config;
+    }
+
+    /**
+     * @return Number of dungeon instances.
+     */
+    public int getDungeons() {
+        return getInt("dungeons", 64);
+    }
+
+    /**
+     * @return Minimum clear time, in seconds.
+     */
+    public int getMinTime() {
+        return getInt("minTime", 0);
+    }
+
+    /**
+     * @return Maximum clear time, in seconds.
+     */
+    public int getMaxTime() {
+        return getInt("maxTime", 1);
+    }
+
+    /**
+     * @return How dungeon runs are executed.
+     */
+    public ExecutionMode getMode() {
+        return ExecutionMode.fromString(properties.getProperty("mode", "timer"));
+    }
+
+    /**
+     * @return "locked", "concurrent", "skill" or "priority".
+     */
+    public String getQueue() {
+        return properties.getProperty("queue", "locked").trim().toLowerCase();
+    }
+
+    /**
+     * @return Player arrivals per second.
+     */
+    public double getRate() {
+        return getDouble("rate", 1000);
+    }
+
+    /**
+     * @return Seconds of arrivals.
+     */
+    public int getDuration() {
+        return getInt("duration", 10);
+    }
+
+    /**
+     * @return The arrival pattern.
+     */
+    public LoadGenerator.Arrivals getArrivals() {
+        return LoadGenerator.Arrivals.valueOf(properties.getProperty("arrivals", "poisson").trim().toUpperCase());
+    }
+
+    /**
+     * @return Players per burst when arrivals are bursty.
+     */
+    public int getBurstSize() {
+        return getInt("burstSize", 100);
+    }
+
+    /**
+     * @return Arrival weights of Tank, Healer and DPS, in that order.
+     */
+    public double[] getMix() {
+        String[] parts = properties.getProperty("mix", "1:1:3").split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("mix must be Tank:Healer:DPS, e.g. 1:1:3");
+        }
+        double[] mix = new double[3];
+        for (int i = 0; i < 3; i++) {
+            mix[i] = Double.parseDouble(parts[i].trim());
+        }
+        return mix;
+    }
+
+    /**
+     * @return Share (0..1) of arrivals that register for their role and one other.
+     */
+    public double getFlex() {
+        return getDouble("flex", 0);
+    }
+
+    /**
+     * @return Random seed for arrivals.
+     */
+    public long getSeed() {
+        return Long.parseLong(properties.getProperty("seed", "42").trim());
+    }
+
+    /**
+     * @return Parties formed per matchmaking pass.
+     */
+    public int getBatch() {
+        return getInt("batch", 64);
+    }
+
+    /**
+     * @return True to run the streaming pipeline.
+     */
+    public boolean isPipeline() {
+        return Boolean.parseBoolean(properties.getProperty("pipeline", "false").trim());
+    }
+
+    /**
+     * @return Arrivals buffered by the pipeline.
+     */
+    public int getIntake() {
+        return getInt("intake", 4096);
+    }
+
+    /**
+     * @return Formed parties buffered by the pipeline.
+     */
+    public int getParties() {
+        return getInt("parties", 2 * getDungeons());
+    }
+
+    /**
+     * @return Players the pipeline holds in the role queues before turning away arrivals for plentiful roles.
+     */
+    public int getWaiting() {
+        return getInt("waiting", 65536);
+    }
+
+    /**
+     * @return True to write the party_status log.
+     */
+    public boolean isLogging() {
+        return Boolean.parseBoolean(properties.getProperty("log", "false").trim());
+    }
+
+    /**
+     * @return Summary file path, or "-" for standard output.
+     */
+    public String getSummary() {
+        return properties.getProperty("summary", "-").trim();
+    }
+
+    private int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    private void validate() {
+        if (getDungeons() < 1) throw new IllegalArgumentException("dungeons must be at least 1");
+        if (getMinTime() < 0 || getMaxTime() < getMinTime()) {
+            throw new IllegalArgumentException("need 0 <= minTime <= maxTime");
+        }
+        if (getMode() == ExecutionMode.SIMULATION) {
+            throw new IllegalArgumentException("headless runs use real time; use timer, thread or virtual");
+        }
+        if (!(getRate() > 0)) throw new IllegalArgumentException("rate must be positive");
+        if (getDuration() < 0) throw new IllegalArgumentException("duration must not be negative");
+        if (getBurstSize() < 1) throw new IllegalArgumentException("burstSize must be at least 1");
+        if (getBatch() < 1) throw new IllegalArgumentException("batch must be at least 1");
+        if (getIntake() < 1 || getParties() < 1) {
+            throw new IllegalArgumentException("intake and parties must be at least 1");
+        }
+        if (getWaiting() < 5) throw new IllegalArgumentException("waiting must be at least 5");
+        String queue = getQueue();
+        if (!queue.equals("locked") && !queue.equals("concurrent") && !queue.equals("skill")
+                && !queue.equals("priority")) {
+            throw new IllegalArgumentException("queue must be locked, concurrent, skill or priority");
+        }
+        if (isPipeline() && !queue.equals("locked")) {
+            throw new IllegalArgumentException("the pipeline forms parties from the locked queue");
+        }
+        double[] mix = getMix();
+        if (mix[0] < 0 || mix[1] < 0 || mix[2] < 0 || mix[0] + mix[1] + mix[2] <= 0) {
+            throw new IllegalArgumentException("mix weights must be non-negative and not all zero");
+        }
+        if (!(getFlex() >= 0 && getFlex() <= 1)) throw new IllegalArgumentException("flex must be between 0 and 1");
+        if (getFlex() > 0 && !queue.equals("locked")) {
+            throw new IllegalArgumentException("flex players need the locked queue");
+        }
+        getArrivals();
+        getSeed();
+    }
+}
@@ -0,0 +1,146 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds players into a queue at a configured rate and role mix for a fixed
+ * length of time. Arrival times are computed up front from the pattern and the
+ * generator sleeps until each one is due, catching up if it falls behind,
+ * so the offered load does not depend on how fast the queue accepts players.
+ */
+public class LoadGenerator implements Runnable {
+
+    /**
+     * How arrivals are spaced.
+     */
+    public enum Arrivals {
+        /** Evenly spaced at 1/rate. */
+        CONSTANT,
+        /** Exponentially distributed gaps with mean 1/rate. */
+        POISSON,
+        /** Groups of burstSize players arriving together, every burstSize/rate seconds. */
+        BURSTY
+    }
+
+    private final PlayerQueue queue;
+    private final Arrivals arrivals;
+    private final double rate;
+    private final long durationNanos;
+    private final int burstSize;
+    private final double[] cumulativeMix = new double[3];
+    private final double flex;
+    private final Random random;
+
+    private final long[] accepted = new long[8]; // by role mask
+    private long rejected = 0;
+    private volatile boolean done = false;
+
+    /**
+     * Constructs a LoadGenerator.
+     * @param queue The queue that receives the players.
+     * @param config Rate, duration, pattern, mix and seed.
+     */
+    public LoadGenerator(PlayerQueue queue, LoadConfig config) {
+        this.queue = queue;
+        this.arrivals = config.getArrivals();
+        this.rate = config.getRate();
+        this.durationNanos = config.getDuration() * 1_000_000_000L;
+        this.burstSize = config.getBurstSize();
+        this.flex = config.getFlex();
+        this.random = new Random(config.getSeed());
+        double[] mix = config.getMix();
+        double total = mix[0] + mix[1] + mix[2];
+        double sum = 0;
+        for (int i = 0; i < 3; i++) {
+            sum += mix[i] / total;
+            cumulativeMix[i] = sum;
+        }
+        cumulativeMix[2] = 1.0;
+    }
+
+    /**
+     * Generates arrivals until the configured duration has passed.
+     */
+    public void run() {
+        long start = System.nanoTime();
+        double nextOffset = 0; // nanoseconds after start
+        long generated = 0;
+        while (nextOffset < durationNanos) {
+            long wait = start + (long) nextOffset - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            int roleMask = 1 << nextRole();
+            if (flex > 0 && random.nextDouble() < flex) {
+                // A second role, chosen evenly from the other two.
+                int others = 7 & ~roleMask;
+                int lowest = others & -others;
+                roleMask |= random.nextBoolean() ? lowest : others & ~lowest;
+            }
+            generated++;
+            if (queue.addPlayer(QueueManager.roleNames(roleMask), (int) generated)) {
+                accepted[roleMask]++;
+            } else {
+                rejected++;
+            }
+            nextOffset += nextGapNanos(generated);
+        }
+        done = true;
+    }
+
+    /**
+     * @return True once all arrivals have been generated.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @param roleIndex Index into {@link MatchmakingMetrics#ROLES}.
+     * @return Players of that role only accepted by the queue. Read after the generator's thread has ended.
+     */
+    public long getAccepted(int roleIndex) {
+        return accepted[1 << roleIndex];
+    }
+
+    /**
+     * @param roleMask Role mask, 1..7 (see {@link QueueManager#roleMask}).
+     * @return Players registered with exactly those roles accepted by the queue.
+     */
+    public long getAcceptedByMask(int roleMask) {
+        return accepted[roleMask];
+    }
+
+    /**
+     * @return Players the queue refused. Read after the generator's thread has ended.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    private int nextRole() {
+        double r = random.nextDouble();
+        if (r < cumulativeMix[0]) return 0;
+        if (r < cumulativeMix[1]) return 1;
+        return 2;
+    }
+
+    /**
+     * Returns the gap between the arrival just generated and the next one.
+     * @param generated Number of arrivals generated so far.
+     */
+    private double nextGapNanos(long generated) {
+        switch (arrivals) {
+            case CONSTANT:
+                return 1e9 / rate;
+            case POISSON:
+                return -Math.log(1.0 - random.nextDouble()) * 1e9 / rate;
+            default:
+                return generated % burstSize == 0 ? burstSize * 1e9 / rate : 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Arrays;
+
+/**
+ * Growable FIFO queue of primitive longs (no boxing). Not thread-safe.
+ */
+public class LongQueue {
+    private long[] items = new long[16];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Adds a value at the tail.
+     * @param value The value to add.
+     */
+    public void add(long value) {
+        if (size == items.length) {
+            long[] grown = new long[items.length * 2];
+            int firstPart = items.length - head;
+            System.arraycopy(items, head, grown, 0, firstPart);
+            System.arraycopy(items, 0, grown, firstPart, head);
+            items = grown;
+            head = 0;
+        }
+        items[(head + size) % items.length] = value;
+        size++;
+    }
+
+    /**
+     * Removes the value at the head.
+     * @return The value.
+     * @throws IllegalStateException if the queue is empty.
+     */
+    public long poll() {
+        if (size == 0) throw new IllegalStateException("Queue is empty.");
+        long value = items[head];
+        head = (head + 1) % items.length;
+        size--;
+        return value;
+    }
+
+    /**
+     * Removes the value at the tail.
+     * @return The value.
+     * @throws IllegalStateException if the queue is empty.
+     */
+    public long pollLast() {
+        if (size == 0) throw new IllegalStateException("Queue is empty.");
+        size--;
+        return items[(head + size) % items.length];
+    }
+
+    /**
+     * Returns a value by position without removing it.
+     * @param index Position from the head (0 = head).
+     * @return The value.
+     * @throws IndexOutOfBoundsException if the index is not below {@link #size()}.
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return items[(head + index) % items.length];
+    }
+
+    /**
+     * @return The value at the head without removing it.
+     * @throws IllegalStateException if the queue is empty.
+     */
+    public long peek() {
+        if (size == 0) throw new IllegalStateException("Queue is empty.");
+        return items[head];
+    }
+
+    /**
+     * @return Number of values in the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        Arrays.fill(items, 0);
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,221 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live matchmaking instrumentation: queue-wait histograms per role, dungeon-slot
+ * wait, run time, dungeon utilization and completion rate. Recording is lock-free
+ * and allocation-free; values are read through JMX or {@link MetricsHttpServer}.
+ */
+public class MatchmakingMetrics implements MatchmakingMetricsMBean {
+    public static final String[] ROLES = {"Tank", "Healer", "DPS"};
+    // Window over which the completion rate is reported.
+    private static final long RATE_WINDOW_MILLIS = 60_000;
+
+    private final LatencyHistogram[] queueWait = {
+            new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()
+    };
+    private final LatencyHistogram slotWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final LongAdder completedRuns = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile IntSupplier activeDungeons = () -> 0;
+    private volatile int dungeonCapacity = 0;
+    private volatile RunHistory runHistory;
+
+    /**
+     * Returns the index of a role in {@link #ROLES}.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @return The index, or -1 if unknown.
+     */
+    public static int roleIndex(String role) {
+        for (int i = 0; i < ROLES.length; i++) {
+            if (ROLES[i].equals(role)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Records how long a player waited in the queue.
+     * @param roleIndex Index into {@link #ROLES}.
+     * @param nanos Wait in nanoseconds.
+     */
+    public void recordQueueWait(int roleIndex, long nanos) {
+        queueWait[roleIndex].record(nanos);
+    }
+
+    /**
+     * Records how long parties waited for a dungeon slot.
+     * @param nanos Wait in nanoseconds.
+     * @param parties Number of parties that waited this long.
+     */
+    public void recordSlotWait(long nanos, int parties) {
+        slotWait.record(nanos, parties);
+    }
+
+    /**
+     * Records a finished dungeon run.
+     * @param clearTimeSeconds The run time in seconds.
+     */
+    public void recordCompletion(int clearTimeSeconds) {
+        runTime.record(clearTimeSeconds * 1_000_000_000L);
+        completedRuns.increment();
+    }
+
+    /**
+     * Attaches the dungeon pool whose utilization is reported.
+     * @param capacity Number of dungeons in the pool.
+     * @param active Supplies the number of dungeons currently in use.
+     */
+    public void setDungeonPool(int capacity, IntSupplier active) {
+        this.dungeonCapacity = capacity;
+        this.activeDungeons = active;
+    }
+
+    /**
+     * Attaches the run history whose recent throughput and clear times are reported.
+     * @param runHistory The history (may be null).
+     */
+    public void setRunHistory(RunHistory runHistory) {
+        this.runHistory = runHistory;
+    }
+
+    /**
+     * @param roleIndex Index into {@link #ROLES}.
+     * @return The queue-wait histogram for the role.
+     */
+    public LatencyHistogram getQueueWait(int roleIndex) {
+        return queueWait[roleIndex];
+    }
+
+    /**
+     * @return The dungeon-slot wait histogram.
+     */
+    public LatencyHistogram getSlotWait() {
+        return slotWait;
+    }
+
+    /**
+     * @return The dungeon run-time histogram.
+     */
+    public LatencyHistogram getRunTime() {
+        return runTime;
+    }
+
+    @Override
+    public int getDungeonCapacity() {
+        return dungeonCapacity;
+    }
+
+    @Override
+    public int getActiveDungeons() {
+        return activeDungeons.getAsInt();
+    }
+
+    @Override
+    public double getUtilization() {
+        int capacity = dungeonCapacity;
+        return capacity == 0 ? 0 : (double) getActiveDungeons() / capacity;
+    }
+
+    @Override
+    public long getCompletedRuns() {
+        return completedRuns.sum();
+    }
+
+    /**
+     * Completions per second over the last minute, counted from the run history. Falls back
+     * to the mean since start in the first minute, or when the history is missing or too
+     * small to hold a minute of runs. Reading it changes nothing, so any number of
+     * consumers see the same rate.
+     */
+    @Override
+    public double getCompletionRatePerSecond() {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long nowMillis = System.currentTimeMillis();
+        RunHistory history = runHistory;
+        if (history != null && elapsedNanos >= RATE_WINDOW_MILLIS * 1_000_000L
+                && (history.getTotalRecorded() < history.capacity()
+                    || history.getOldestFinishMillis() <= nowMillis - RATE_WINDOW_MILLIS)) {
+            return history.throughput(RATE_WINDOW_MILLIS, nowMillis);
+        }
+        return elapsedNanos <= 0 ? 0 : completedRuns.sum() / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Registers this object and its histograms with the platform MBean server
+     * under the "lfgs" domain.
+     */
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName("lfgs:type=Matchmaking"));
+            for (int i = 0; i < ROLES.length; i++) {
+                server.registerMBean(queueWait[i], new ObjectName("lfgs:type=Latency,name=QueueWait" + ROLES[i]));
+            }
+            server.registerMBean(slotWait, new ObjectName("lfgs:type=Latency,name=SlotWait"));
+            server.registerMBean(runTime, new ObjectName("lfgs:type=Latency,name=RunTime"));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Formats all metrics in the Prometheus text exposition format.
+     * @return The metrics text.
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("# TYPE lfg_queue_wait_seconds summary\n");
+        for (int i = 0; i < ROLES.length; i++) {
+            appendSummary(sb, "lfg_queue_wait_seconds", "role=\"" + ROLES[i] + "\"", queueWait[i]);
+        }
+        sb.append("# TYPE lfg_slot_wait_seconds summary\n");
+        appendSummary(sb, "lfg_slot_wait_seconds", "", slotWait);
+        sb.append("# TYPE lfg_run_time_seconds summary\n");
+        appendSummary(sb, "lfg_run_time_seconds", "", runTime);
+        sb.append("# TYPE lfg_dungeon_capacity gauge\n");
+        sb.append("lfg_dungeon_capacity ").append(getDungeonCapacity()).append('\n');
+        sb.append("# TYPE lfg_dungeons_active gauge\n");
+        sb.append("lfg_dungeons_active ").append(getActiveDungeons()).append('\n');
+        sb.append("# TYPE lfg_dungeon_utilization gauge\n");
+        sb.append("lfg_dungeon_utilization ").append(getUtilization()).append('\n');
+        sb.append("# TYPE lfg_runs_completed_total counter\n");
+        sb.append("lfg_runs_completed_total ").append(getCompletedRuns()).append('\n');
+        RunHistory history = runHistory;
+        if (history != null) {
+            // Over the runs still held in memory, and the last minute of them for throughput.
+            sb.append("# TYPE lfg_recent_runs gauge\n");
+            sb.append("lfg_recent_runs ").append(history.size()).append('\n');
+            sb.append("# TYPE lfg_recent_throughput_parties_per_second gauge\n");
+            sb.append("lfg_recent_throughput_parties_per_second{window=\"60s\"} ")
+                    .append(history.throughput(RATE_WINDOW_MILLIS, System.currentTimeMillis())).append('\n');
+            sb.append("# TYPE lfg_recent_clear_seconds gauge\n");
+            for (double q : new double[]{0.5, 0.95}) {
+                sb.append("lfg_recent_clear_seconds{quantile=\"").append(q).append("\"} ")
+                        .append(Math.max(0, history.clearTimePercentile(0, q * 100))).append('\n');
+            }
+            double mean = history.meanClearTime(0);
+            sb.append("lfg_recent_clear_seconds_mean ").append(Double.isNaN(mean) ? 0 : mean).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendSummary(StringBuilder sb, String name, String labels, LatencyHistogram h) {
+        String sep = labels.isEmpty() ? "" : ",";
+        for (double q : new double[]{0.5, 0.9, 0.99}) {
+            sb.append(name).append('{').append(labels).append(sep).append("quantile=\"").append(q).append("\"} ")
+                    .append(h.percentileNanos(q * 100) / 1e9).append('\n');
+        }
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(name).append("_sum").append(braces).append(' ').append(h.getSumNanos() / 1e9).append('\n');
+        sb.append(name).append("_count").append(braces).append(' ').append(h.getCount()).append('\n');
+    }
+}
@@ -0,0 +1,19 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * JMX view of pool-wide matchmaking metrics.
+ */
+public interface MatchmakingMetricsMBean {
+
+    int getDungeonCapacity();
+
+    int getActiveDungeons();
+
+    double getUtilization();
+
+    long getCompletedRuns();
+
+    double getCompletionRatePerSecond();
+}
@@ -0,0 +1,250 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-running matchmaking in three stages connected by bounded queues:
+ * <pre>
+ * addPlayer --[intake]--> matcher (QueueManager) --[formed parties]--> dispatcher --> DungeonManager
+ * </pre>
+ * Only the dispatcher ever waits on a dungeon slot. When the pool is full the
+ * dispatcher stalls, the formed-party queue fills, the matcher stops taking
+ * arrivals, and finally {@link #addPlayer} blocks the producer. The matcher itself always
+ * takes arrivals; once too many players are waiting for a party, {@link #addPlayer} turns
+ * away those who can only fill the role the waiting players already have most of.
+ * Arrivals pass through a {@link BoundedRingBuffer} as primitive (ID, role mask) pairs.
+ * Formed parties travel in a fixed set of {@link PartyBatch}es that the dispatcher hands
+ * back to the matcher once placed, so parties cost no allocation on their way to a dungeon.
+ */
+public class MatchmakingPipeline implements PlayerQueue {
+
+    private final QueueManager queue;
+    private final DungeonManager dungeonManager;
+    private final BoundedRingBuffer intake;
+    // Producers waiting for room in the intake; the matcher signals them after taking arrivals.
+    private final ReentrantLock intakeLock = new ReentrantLock();
+    private final Condition notFull = intakeLock.newCondition();
+    private volatile int producersWaiting = 0;
+    private volatile boolean matcherParked = false;
+    private final BlockingQueue<PartyBatch> formed;
+    private final BlockingQueue<PartyBatch> free;
+    private final int batchSize;
+    private final int maxWaiting;
+    private final Thread matcher;
+    private final Thread dispatcher;
+    private volatile boolean closed = false;
+    private volatile boolean draining = false;
+
+    /**
+     * Constructs a MatchmakingPipeline. Call {@link #start()} to begin matching.
+     * @param queue The role queues parties are formed from.
+     * @param dungeonManager The dungeon pool parties are dispatched to.
+     * @param intakeCapacity Maximum arrivals waiting to reach the role queues.
+     * @param partyCapacity Maximum formed parties waiting for a dungeon (rounded up to whole batches).
+     * @param maxWaiting Players in the role queues above which arrivals for the most plentiful
+     *                   role are turned away.
+     * @param batchSize Maximum parties formed or dispatched at once.
+     */
+    public MatchmakingPipeline(QueueManager queue, DungeonManager dungeonManager, int intakeCapacity,
+                               int partyCapacity, int maxWaiting, int batchSize) {
+        this.queue = queue;
+        this.dungeonManager = dungeonManager;
+        this.intake = new BoundedRingBuffer(intakeCapacity);
+        int batches = Math.max(2, (partyCapacity + batchSize - 1) / batchSize);
+        this.formed = new ArrayBlockingQueue<>(batches);
+        this.free = new ArrayBlockingQueue<>(batches);
+        for (int i = 0; i < batches; i++) {
+            free.add(new PartyBatch(batchSize));
+        }
+        this.maxWaiting = maxWaiting;
+        this.batchSize = batchSize;
+        this.matcher = new Thread(this::match, "lfg-matcher");
+        this.dispatcher = new Thread(this::dispatch, "lfg-dispatcher");
+    }
+
+    /**
+     * Creates a pipeline sized from -Dlfg.pipeline.intake (default 4096),
+     * -Dlfg.pipeline.parties (default: twice the dungeon count), -Dlfg.pipeline.waiting
+     * (default 65536) and -Dlfg.batch (default 64).
+     * @param queue The role queues parties are formed from.
+     * @param dungeonManager The dungeon pool parties are dispatched to.
+     * @param maxDungeons Number of dungeons in the pool.
+     * @return The pipeline, not yet started.
+     */
+    public static MatchmakingPipeline fromSystemProperties(QueueManager queue, DungeonManager dungeonManager,
+                                                           int maxDungeons) {
+        int intake = Math.max(1, Integer.getInteger("lfg.pipeline.intake", 4096));
+        int parties = Math.max(1, Integer.getInteger("lfg.pipeline.parties", Math.max(1, 2 * maxDungeons)));
+        int waiting = Math.max(5, Integer.getInteger("lfg.pipeline.waiting", 65536));
+        int batch = Math.max(1, Integer.getInteger("lfg.batch", 64));
+        return new MatchmakingPipeline(queue, dungeonManager, intake, parties, waiting, batch);
+    }
+
+    /**
+     * Starts the matcher and dispatcher threads.
+     */
+    public void start() {
+        matcher.start();
+        dispatcher.start();
+    }
+
+    /**
+     * Hands a player to the pipeline, waiting while the intake is full. Once maxWaiting
+     * players are waiting for a party, players who can only fill the role the waiting
+     * players already have most of are turned away rather than held.
+     * @param role Player role ("Tank", "Healer", "DPS"), or several separated by '/'.
+     * @param id Player identifier.
+     * @return True if the player was accepted; false if the role is unknown, too many players
+     *         are already waiting for a party, or the pipeline was closed before there was room.
+     */
+    public boolean addPlayer(String role, int id) {
+        int roleMask = QueueManager.roleMask(role);
+        if (roleMask == 0) return false;
+        if (queue.getQueuedCount() + intake.size() >= maxWaiting
+                && (roleMask & ~queue.surplusRoles()) == 0) return false;
+        while (!closed) {
+            if (intake.offer(id, roleMask)) {
+                if (matcherParked) LockSupport.unpark(matcher);
+                return true;
+            }
+            if (!awaitRoom()) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Waits until the matcher has taken arrivals, the pipeline is closed, or 50 ms pass.
+     * @return False if the thread was interrupted.
+     */
+    private boolean awaitRoom() {
+        intakeLock.lock();
+        try {
+            producersWaiting++;
+            // Checked after registering, so the matcher either sees us waiting or we see the room.
+            if (!closed && intake.size() >= intake.capacity()) {
+                notFull.await(50, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            producersWaiting--;
+            intakeLock.unlock();
+        }
+    }
+
+    private void signalRoom() {
+        intakeLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            intakeLock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the players waiting in the role queues could form a party.
+     * Parties themselves are formed by the pipeline's matcher stage.
+     * @return True if at least 1 Tank, 1 Healer, and 3 DPS are waiting.
+     */
+    public boolean canFormParty() {
+        return queue.canFormParty();
+    }
+
+    /**
+     * Returns the counts of players still waiting in the role queues.
+     * @return A string listing the number of leftover Tanks, Healers, and DPS.
+     */
+    public String getLeftoverPlayers() {
+        return queue.getLeftoverPlayers();
+    }
+
+    /**
+     * Stops accepting players. Producers waiting in {@link #addPlayer} give up and get false.
+     */
+    public void close() {
+        closed = true;
+        signalRoom();
+    }
+
+    /**
+     * Stops accepting players and waits until every accepted player has either been
+     * placed in a dungeon or is left over because no full party can be formed.
+     * Call once every producer has returned from {@link #addPlayer}; runs that are
+     * in progress keep going.
+     */
+    public void closeAndDrain() {
+        closed = true;
+        draining = true;
+        signalRoom();
+        LockSupport.unpark(matcher);
+        try {
+            matcher.join();
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Matcher stage: moves arrivals into the role queues and forms parties as soon as
+     * the role mix allows. Taking an empty batch blocks while the dispatcher is behind.
+     */
+    private void match() {
+        long[] arrival = new long[2];
+        try {
+            while (true) {
+                int taken = 0;
+                while (taken < batchSize && intake.poll(arrival)) {
+                    queue.addPlayer((int) arrival[1], (int) arrival[0]);
+                    taken++;
+                }
+                if (taken > 0 && producersWaiting > 0) signalRoom();
+                while (queue.canFormParty()) {
+                    PartyBatch batch = free.take();
+                    queue.takeParties(batch, batchSize);
+                    formed.put(batch);
+                }
+                if (taken == 0) {
+                    if (draining && intake.size() == 0) break;
+                    // Producers unpark the matcher once it has announced itself; the guard
+                    // covers an arrival published between the check and the park.
+                    matcherParked = true;
+                    if (intake.size() == 0 && !draining) LockSupport.parkNanos(50_000_000L);
+                    matcherParked = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Dispatch stage: hands formed batches to the dungeon pool and returns them to the
+     * matcher, the only place that waits for a free dungeon.
+     */
+    private void dispatch() {
+        try {
+            while (true) {
+                PartyBatch batch = formed.poll(50, TimeUnit.MILLISECONDS);
+                if (batch == null) {
+                    if (!matcher.isAlive() && formed.isEmpty()) break;
+                    continue;
+                }
+                dungeonManager.assignParties(batch);
+                batch.clear();
+                free.put(batch);
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
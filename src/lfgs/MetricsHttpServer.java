@@ -0,0 +1,45 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Optional local HTTP endpoint serving {@link MatchmakingMetrics} in Prometheus
+ * text format at /metrics. Binds to the loopback address only.
+ */
+public class MetricsHttpServer {
+    private final HttpServer server;
+
+    /**
+     * Starts the endpoint.
+     * @param port Local port to listen on.
+     * @param metrics The metrics to serve.
+     * @throws IOException if the port cannot be bound.
+     */
+    public MetricsHttpServer(int port, MatchmakingMetrics metrics) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stops the endpoint.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,192 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * Reusable, fixed-capacity table of formed parties kept as primitive player IDs.
+ * Each party takes one row of {@link #PARTY_SIZE} IDs in role order (Tank, Healer,
+ * DPS, DPS, DPS). Queues fill a batch and the dungeon pool reads it and records the
+ * dungeon and party ID each party was given, so forming and placing parties allocates
+ * nothing. Player strings like "Tank-12" are only built by {@link #toStrings(int)}, for
+ * callers that display them. Not thread-safe; a batch is handed from one thread to the next.
+ */
+public class PartyBatch {
+    public static final int PARTY_SIZE = 5;
+    private static final String[] SLOT_ROLES = {"Tank", "Healer", "DPS", "DPS", "DPS"};
+
+    private final int[] players;
+    private final int[] dungeonIDs;
+    private final int[] partyIDs;
+    private int size = 0;
+
+    /**
+     * Constructs an empty PartyBatch.
+     * @param capacity Maximum number of parties it holds.
+     */
+    public PartyBatch(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+        this.players = new int[capacity * PARTY_SIZE];
+        this.dungeonIDs = new int[capacity];
+        this.partyIDs = new int[capacity];
+    }
+
+    /**
+     * Appends an empty party row whose players are then set with {@link #setPlayer}.
+     * @return The index of the new party.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int addParty() {
+        if (size == capacity()) throw new IllegalStateException("Party batch is full.");
+        dungeonIDs[size] = 0;
+        partyIDs[size] = 0;
+        return size++;
+    }
+
+    /**
+     * Appends a party.
+     * @param tank The Tank's ID.
+     * @param healer The Healer's ID.
+     * @param dps1 The first DPS's ID.
+     * @param dps2 The second DPS's ID.
+     * @param dps3 The third DPS's ID.
+     * @return The index of the new party.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int addParty(int tank, int healer, int dps1, int dps2, int dps3) {
+        int party = addParty();
+        int row = party * PARTY_SIZE;
+        players[row] = tank;
+        players[row + 1] = healer;
+        players[row + 2] = dps1;
+        players[row + 3] = dps2;
+        players[row + 4] = dps3;
+        return party;
+    }
+
+    /**
+     * @param party The party index.
+     * @param slot 0 = Tank, 1 = Healer, 2..4 = DPS.
+     * @param playerID The player's ID.
+     */
+    public void setPlayer(int party, int slot, int playerID) {
+        players[party * PARTY_SIZE + slot] = playerID;
+    }
+
+    /**
+     * @param party The party index.
+     * @param slot 0 = Tank, 1 = Healer, 2..4 = DPS.
+     * @return The player's ID.
+     */
+    public int getPlayer(int party, int slot) {
+        return players[party * PARTY_SIZE + slot];
+    }
+
+    /**
+     * @param party The party index.
+     * @return The party's Tank, who leads it.
+     */
+    public int getLeader(int party) {
+        return players[party * PARTY_SIZE];
+    }
+
+    /**
+     * Records where a party was placed.
+     * @param party The party index.
+     * @param dungeonID The dungeon it entered.
+     * @param partyID The party ID it was given.
+     */
+    public void setPlacement(int party, int dungeonID, int partyID) {
+        dungeonIDs[party] = dungeonID;
+        partyIDs[party] = partyID;
+    }
+
+    /**
+     * @param party The party index.
+     * @return The dungeon the party entered, or 0 if it has not been placed.
+     */
+    public int getDungeonID(int party) {
+        return dungeonIDs[party];
+    }
+
+    /**
+     * @param party The party index.
+     * @return The party ID it was given, or 0 if it has not been placed.
+     */
+    public int getPartyID(int party) {
+        return partyIDs[party];
+    }
+
+    /**
+     * Spells a party out as player strings, e.g. {"Tank-1", "Healer-2", "DPS-3", ...}.
+     * @param party The party index.
+     * @return A new array of player strings.
+     */
+    public String[] toStrings(int party) {
+        String[] strings = new String[PARTY_SIZE];
+        for (int slot = 0; slot < PARTY_SIZE; slot++) {
+            strings[slot] = SLOT_ROLES[slot] + "-" + getPlayer(party, slot);
+        }
+        return strings;
+    }
+
+    /**
+     * Reads a party from player strings (the inverse of {@link #toStrings}).
+     * @param party Player strings in role order, e.g. {"Tank-1", "Healer-2", "DPS-3", ...}.
+     * @return The index of the new party.
+     */
+    public int addParty(String[] party) {
+        int index = addParty();
+        for (int slot = 0; slot < PARTY_SIZE; slot++) {
+            setPlayer(index, slot, playerID(party[slot]));
+        }
+        return index;
+    }
+
+    /**
+     * Reads the ID from a player string without allocating, e.g. 12 from "Tank-12".
+     * @param player The player string.
+     * @return The ID.
+     * @throws NumberFormatException if there is no ID after the '-'.
+     */
+    public static int playerID(String player) {
+        int i = player.indexOf('-') + 1;
+        if (i == 0 || i == player.length()) throw new NumberFormatException("No player ID in: " + player);
+        boolean negative = player.charAt(i) == '-';
+        if (negative) i++;
+        int id = 0;
+        for (; i < player.length(); i++) {
+            int digit = player.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException("No player ID in: " + player);
+            id = id * 10 + digit;
+        }
+        return negative ? -id : id;
+    }
+
+    /**
+     * @return Number of parties in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of parties that can still be added.
+     */
+    public int remaining() {
+        return capacity() - size;
+    }
+
+    /**
+     * @return Maximum number of parties.
+     */
+    public int capacity() {
+        return players.length / PARTY_SIZE;
+    }
+
+    /**
+     * Empties the batch for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
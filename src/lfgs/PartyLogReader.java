@@ -0,0 +1,227 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped reader for binary party logs (see {@link BinaryPartyLog}).
+ * Records are read straight out of the mapping and handed to a primitive callback,
+ * so scanning millions of records allocates nothing per record.
+ */
+public class PartyLogReader {
+    // Largest mapping that holds a whole number of records and fits in a MappedByteBuffer.
+    private static final long MAX_MAPPING = (Integer.MAX_VALUE / BinaryPartyLog.RECORD_SIZE)
+            * (long) BinaryPartyLog.RECORD_SIZE;
+
+    private final Path path;
+
+    /**
+     * Receives each record during a scan.
+     */
+    public interface RecordVisitor {
+        /**
+         * Called once per record, in file order.
+         * @param partyID The party identifier.
+         * @param dungeonID The dungeon identifier.
+         * @param startMillis Start of the run in milliseconds.
+         * @param finishMillis End of the run in milliseconds.
+         * @param clearTime The time (in seconds) the party took.
+         */
+        void visit(int partyID, int dungeonID, long startMillis, long finishMillis, int clearTime);
+    }
+
+    /**
+     * Per-dungeon totals and a clear-time histogram built from one scan. Both are indexed
+     * directly, so it relies on {@link #scan} having rejected damaged records.
+     */
+    public static class Summary implements RecordVisitor {
+        private int[] partiesServed = new int[1024];
+        private long[] totalTimeServed = new long[1024];
+        private long[] clearTimeCounts = new long[64];
+        private int maxDungeonID = 0;
+        private long records = 0;
+
+        @Override
+        public void visit(int partyID, int dungeonID, long startMillis, long finishMillis, int clearTime) {
+            if (dungeonID >= partiesServed.length) {
+                int size = grow(dungeonID, partiesServed.length);
+                partiesServed = Arrays.copyOf(partiesServed, size);
+                totalTimeServed = Arrays.copyOf(totalTimeServed, size);
+            }
+            if (clearTime >= clearTimeCounts.length) {
+                clearTimeCounts = Arrays.copyOf(clearTimeCounts, grow(clearTime, clearTimeCounts.length));
+            }
+            partiesServed[dungeonID]++;
+            totalTimeServed[dungeonID] += clearTime;
+            clearTimeCounts[clearTime]++;
+            maxDungeonID = Math.max(maxDungeonID, dungeonID);
+            records++;
+        }
+
+        private static int grow(int index, int length) {
+            return (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(index + 1L, 2L * length));
+        }
+
+        /**
+         * @return Number of records scanned.
+         */
+        public long getRecordCount() {
+            return records;
+        }
+
+        /**
+         * @return The highest dungeon ID seen.
+         */
+        public int getMaxDungeonID() {
+            return maxDungeonID;
+        }
+
+        /**
+         * @param dungeonID The dungeon identifier.
+         * @return Number of parties the dungeon served.
+         */
+        public int getPartiesServed(int dungeonID) {
+            return dungeonID < partiesServed.length ? partiesServed[dungeonID] : 0;
+        }
+
+        /**
+         * @param dungeonID The dungeon identifier.
+         * @return Total clear time (seconds) the dungeon served.
+         */
+        public long getTotalTimeServed(int dungeonID) {
+            return dungeonID < totalTimeServed.length ? totalTimeServed[dungeonID] : 0;
+        }
+
+        /**
+         * Returns a clear-time percentile from the histogram.
+         * @param percentile Percentile between 0 and 100.
+         * @return The smallest clear time (seconds) at or above the percentile, or 0 if empty.
+         */
+        public int clearTimePercentile(double percentile) {
+            if (records == 0) return 0;
+            long rank = (long) Math.ceil(percentile / 100.0 * records);
+            long seen = 0;
+            for (int t = 0; t < clearTimeCounts.length; t++) {
+                seen += clearTimeCounts[t];
+                if (seen >= Math.max(1, rank)) return t;
+            }
+            return clearTimeCounts.length - 1;
+        }
+    }
+
+    /**
+     * Constructs a PartyLogReader.
+     * @param fileName The binary log file.
+     */
+    public PartyLogReader(String fileName) {
+        this.path = Paths.get(fileName);
+    }
+
+    /**
+     * Scans every complete record in the file. A partially written trailing record is ignored.
+     * Each record is checked before it is visited: the dungeon ID must be positive, the clear
+     * time not negative, and the run must span exactly its clear time (as every record is
+     * written), so a damaged file is reported instead of being summed or replayed.
+     * @param visitor Receives each record.
+     * @return Number of records visited.
+     * @throws IOException if the file cannot be read, is not a binary party log, or holds a
+     *                     damaged record (its file offset is reported).
+     */
+    public long scan(RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < BinaryPartyLog.HEADER_SIZE) {
+                throw new IOException("Not a binary party log.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryPartyLog.HEADER_SIZE);
+            header.order(BinaryPartyLog.ORDER);
+            BinaryPartyLog.checkHeader(header);
+
+            long recordBytes = (size - BinaryPartyLog.HEADER_SIZE) / BinaryPartyLog.RECORD_SIZE
+                    * BinaryPartyLog.RECORD_SIZE;
+            long count = 0;
+            for (long offset = 0; offset < recordBytes; offset += MAX_MAPPING) {
+                long length = Math.min(MAX_MAPPING, recordBytes - offset);
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+                        BinaryPartyLog.HEADER_SIZE + offset, length);
+                map.order(BinaryPartyLog.ORDER);
+                for (int pos = 0; pos < length; pos += BinaryPartyLog.RECORD_SIZE) {
+                    int dungeonID = map.getInt(pos + BinaryPartyLog.DUNGEON_ID);
+                    long startMillis = map.getLong(pos + BinaryPartyLog.START_MILLIS);
+                    long finishMillis = map.getLong(pos + BinaryPartyLog.FINISH_MILLIS);
+                    int clearTime = map.getInt(pos + BinaryPartyLog.CLEAR_TIME);
+                    if (dungeonID < 1 || clearTime < 0 || finishMillis - startMillis != clearTime * 1000L) {
+                        throw new IOException("Damaged record at offset " + (BinaryPartyLog.HEADER_SIZE + offset + pos)
+                                + ": dungeon ID " + dungeonID + ", clear time " + clearTime + ".");
+                    }
+                    visitor.visit(map.getInt(pos + BinaryPartyLog.PARTY_ID), dungeonID, startMillis, finishMillis,
+                            clearTime);
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Scans the file and aggregates per-dungeon totals and clear-time percentiles.
+     * @return The aggregated summary.
+     * @throws IOException if the file cannot be read.
+     */
+    public Summary summarize() throws IOException {
+        Summary summary = new Summary();
+        scan(summary);
+        return summary;
+    }
+
+    /**
+     * Replays the log into a DungeonStatus, rebuilding its per-dungeon counters and run history.
+     * @param dungeonStatus The status to update.
+     * @return Number of records replayed.
+     * @throws IOException if the file cannot be read.
+     */
+    public long replay(DungeonStatus dungeonStatus) throws IOException {
+        return scan((partyID, dungeonID, start, finish, clearTime) ->
+                dungeonStatus.replayRun(partyID, dungeonID, start, clearTime));
+    }
+
+    /**
+     * Prints per-dungeon totals and clear-time percentiles for a binary log.
+     * @param args The log file, optionally followed by --replay to print the rebuilt status table.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java PartyLogReader <party_status_*.bin> [--replay]");
+            return;
+        }
+        PartyLogReader reader = new PartyLogReader(args[0]);
+
+        long start = System.nanoTime();
+        Summary summary = reader.summarize();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        if (args.length > 1 && args[1].equals("--replay")) {
+            DungeonStatus dungeonStatus = new DungeonStatus(summary.getMaxDungeonID(), false);
+            dungeonStatus.setNameGenerator(null); // the log does not record dungeon names
+            reader.replay(dungeonStatus);
+            dungeonStatus.printSnapshot();
+        } else {
+            System.out.println(String.format("%-10s | %-15s | %-20s", "Dungeon ID", "Party Served", "Total Time Served"));
+            for (int id = 1; id <= summary.getMaxDungeonID(); id++) {
+                if (summary.getPartiesServed(id) == 0) continue;
+                System.out.println(String.format("%-10d | %-15d | %-20d",
+                        id, summary.getPartiesServed(id), summary.getTotalTimeServed(id)));
+            }
+        }
+        System.out.println("Records: " + summary.getRecordCount() + " (scanned in " + elapsedMillis + " ms)");
+        System.out.println("Clear time p50/p95/p99: " + summary.clearTimePercentile(50) + " / "
+                + summary.clearTimePercentile(95) + " / " + summary.clearTimePercentile(99) + " sec");
+    }
+}
@@ -0,0 +1,375 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Background writer for the party completion log.
+ * Callers hand records over a bounded queue; a single writer thread encodes whatever
+ * has queued up (as text lines or fixed-width binary records) into one append on a
+ * long-lived FileChannel. A full queue blocks callers (back-pressure) rather than
+ * growing without bound. The queue is a ring of primitive columns, and text lines are
+ * built in a reused buffer, so logging a run allocates nothing on the caller's side.
+ * If the writer thread fails, callers get its error from {@link #append} and
+ * {@link #close} instead of waiting on a queue that no longer drains.
+ */
+public class PartyLogWriter {
+    public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int MAX_BATCH = 4096;
+    private static final String NEWLINE = System.lineSeparator();
+
+    /**
+     * On-disk encoding of the log.
+     */
+    public enum Format {
+        /** One human-readable line per party (party_status_*.txt). */
+        TEXT,
+        /** Fixed-width records as described in {@link BinaryPartyLog}. */
+        BINARY;
+
+        /**
+         * Parses a format name (case-insensitive).
+         * @param name The format name.
+         * @return The matching Format.
+         * @throws IllegalArgumentException if the name does not match any format.
+         */
+        public static Format fromString(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name.trim())) return format;
+            }
+            throw new IllegalArgumentException("Unknown log format: " + name);
+        }
+
+        /**
+         * @return The file extension used for this format.
+         */
+        public String extension() {
+            return this == TEXT ? ".txt" : ".bin";
+        }
+    }
+
+    /**
+     * When written data is forced to disk.
+     */
+    public enum FlushPolicy {
+        /** Leave flushing to the operating system. */
+        NONE,
+        /** fsync after every group of appended lines. */
+        EVERY_BATCH,
+        /** fsync at most once per flush interval. */
+        INTERVAL;
+
+        /**
+         * Parses a policy name (case-insensitive, "batch" is accepted for EVERY_BATCH).
+         * @param name The policy name.
+         * @return The matching FlushPolicy.
+         * @throws IllegalArgumentException if the name does not match any policy.
+         */
+        public static FlushPolicy fromString(String name) {
+            String n = name.trim();
+            if (n.equalsIgnoreCase("batch")) return EVERY_BATCH;
+            for (FlushPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(n)) return policy;
+            }
+            throw new IllegalArgumentException("Unknown flush policy: " + name);
+        }
+    }
+
+    // Ring of queued records, one array per field; guarded by lock.
+    private final int[] partyIDs;
+    private final int[] dungeonIDs;
+    private final long[] startMillis;
+    private final long[] finishMillis;
+    private final int[] clearTimes;
+    private int head = 0;
+    private int count = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // Records taken off the ring by the writer thread.
+    private final int[] batchPartyIDs = new int[MAX_BATCH];
+    private final int[] batchDungeonIDs = new int[MAX_BATCH];
+    private final long[] batchStartMillis = new long[MAX_BATCH];
+    private final long[] batchFinishMillis = new long[MAX_BATCH];
+    private final int[] batchClearTimes = new int[MAX_BATCH];
+    private final StringBuilder line = new StringBuilder(128);
+    private CharBuffer chars = CharBuffer.allocate(256);
+    private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder();
+    private final FileChannel channel;
+    private final Format format;
+    private final IntFunction<String> dungeonNames;
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalMillis;
+    private final Thread writerThread;
+    private volatile boolean closed = false;
+    private IOException failure; // set by the writer thread when it stops on an error; guarded by lock
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(BinaryPartyLog.ORDER);
+    private long lastForce = System.currentTimeMillis();
+    private boolean dirty = false;
+
+    /**
+     * Constructs a PartyLogWriter configured from system properties: lfg.log.format
+     * (text|binary), lfg.log.queue (capacity), lfg.log.flush (none|batch|interval)
+     * and lfg.log.flushMillis.
+     * @param baseName The log file name without extension.
+     * @param dungeonNames Resolves dungeon names for the text format.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static PartyLogWriter fromSystemProperties(String baseName, IntFunction<String> dungeonNames)
+            throws IOException {
+        Format format = Format.fromString(System.getProperty("lfg.log.format", "text"));
+        return new PartyLogWriter(baseName + format.extension(), format, dungeonNames,
+                Integer.getInteger("lfg.log.queue", DEFAULT_QUEUE_CAPACITY),
+                FlushPolicy.fromString(System.getProperty("lfg.log.flush", "none")),
+                Long.getLong("lfg.log.flushMillis", DEFAULT_FLUSH_INTERVAL_MILLIS));
+    }
+
+    /**
+     * Constructs a PartyLogWriter and starts its writer thread.
+     * @param fileName The log file to append to (created if missing).
+     * @param format How records are encoded.
+     * @param dungeonNames Resolves dungeon names for the text format.
+     * @param queueCapacity Maximum number of records waiting to be written.
+     * @param flushPolicy When to force data to disk.
+     * @param flushIntervalMillis Interval used by {@link FlushPolicy#INTERVAL}.
+     * @throws IOException if the file cannot be opened.
+     */
+    public PartyLogWriter(String fileName, Format format, IntFunction<String> dungeonNames, int queueCapacity,
+                          FlushPolicy flushPolicy, long flushIntervalMillis) throws IOException {
+        if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be at least 1.");
+        this.partyIDs = new int[queueCapacity];
+        this.dungeonIDs = new int[queueCapacity];
+        this.startMillis = new long[queueCapacity];
+        this.finishMillis = new long[queueCapacity];
+        this.clearTimes = new int[queueCapacity];
+        this.channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.format = format;
+        this.dungeonNames = dungeonNames;
+        if (format == Format.BINARY && channel.size() == 0) {
+            BinaryPartyLog.writeHeader(buffer);
+        }
+        this.flushPolicy = flushPolicy;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.writerThread = new Thread(this::writeLoop, "party-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a finished run for writing, blocking while the queue is full. An interrupt
+     * does not drop the record: the wait goes on and the interrupt is kept for the caller.
+     * @param partyID The party identifier.
+     * @param dungeonID The dungeon identifier.
+     * @param start When the run started.
+     * @param finish When the run finished.
+     * @param clearTime The time (in seconds) the party took.
+     * @throws IllegalStateException if the writer has been closed.
+     * @throws UncheckedIOException if the writer thread has stopped on an error.
+     */
+    public void append(int partyID, int dungeonID, long start, long finish, int clearTime) {
+        lock.lock();
+        try {
+            while (true) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Party log writer failed.", failure);
+                }
+                if (closed) {
+                    throw new IllegalStateException("Party log writer is closed.");
+                }
+                if (count < partyIDs.length) break;
+                // Woken by the writer taking records, failing, or close().
+                notFull.awaitUninterruptibly();
+            }
+            int tail = (head + count) % partyIDs.length;
+            partyIDs[tail] = partyID;
+            dungeonIDs[tail] = dungeonID;
+            startMillis[tail] = start;
+            finishMillis[tail] = finish;
+            clearTimes[tail] = clearTime;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every queued record, forces it to disk and closes the file.
+     * Blocks until the writer thread has finished.
+     * @throws UncheckedIOException if the writer thread stopped on an error, so some
+     *         records were not written.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            notEmpty.signal();
+            // Callers waiting for room give up rather than wait on a writer that is stopping.
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Party log writer failed; records were lost.", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writer thread body: takes whatever has queued up and writes it as one append.
+     */
+    private void writeLoop() {
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                int taken;
+                lock.lock();
+                try {
+                    long waitNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                    while (count == 0 && !closed && waitNanos > 0) {
+                        waitNanos = notEmpty.awaitNanos(waitNanos);
+                    }
+                    taken = Math.min(count, MAX_BATCH);
+                    for (int i = 0; i < taken; i++) {
+                        int index = (head + i) % partyIDs.length;
+                        batchPartyIDs[i] = partyIDs[index];
+                        batchDungeonIDs[i] = dungeonIDs[index];
+                        batchStartMillis[i] = startMillis[index];
+                        batchFinishMillis[i] = finishMillis[index];
+                        batchClearTimes[i] = clearTimes[index];
+                    }
+                    head = (head + taken) % partyIDs.length;
+                    count -= taken;
+                    // Appends made after close() are rejected, so an empty ring is final.
+                    stopping = closed && count == 0;
+                    if (taken > 0) notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (taken > 0) {
+                    for (int i = 0; i < taken; i++) {
+                        encode(batchPartyIDs[i], batchDungeonIDs[i], batchStartMillis[i], batchFinishMillis[i],
+                                batchClearTimes[i]);
+                    }
+                    writeBuffer();
+                }
+                maybeForce(stopping);
+            }
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("Party log writer interrupted."));
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting records after the writer thread failed, and wakes every caller
+     * waiting for room so it sees the error.
+     */
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends one record to the write buffer in the configured format.
+     */
+    private void encode(int partyID, int dungeonID, long start, long finish, int clearTime) throws IOException {
+        if (format == Format.BINARY) {
+            if (buffer.remaining() < BinaryPartyLog.RECORD_SIZE) {
+                writeBuffer();
+            }
+            BinaryPartyLog.writeRecord(buffer, partyID, dungeonID, start, finish, clearTime);
+            return;
+        }
+        line.setLength(0);
+        appendText(line, partyID, dungeonID, clearTime).append(NEWLINE);
+        if (chars.capacity() < line.length()) {
+            chars = CharBuffer.allocate(2 * line.length());
+        }
+        chars.clear();
+        chars.append(line).flip();
+        utf8.reset();
+        // A line that does not fit is split over two writes; the file sees the same bytes.
+        while (utf8.encode(chars, buffer, true).isOverflow()) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Appends a text log line (without a line separator).
+     */
+    private StringBuilder appendText(StringBuilder sb, int partyID, int dungeonID, int clearTime) {
+        return sb.append("[Party ID: ").append(partyID)
+                .append("] - Finished at Dungeon [").append(dungeonNames.apply(dungeonID))
+                .append(" (ID: ").append(dungeonID)
+                .append(")]: Time [").append(clearTime).append(" seconds]");
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+            dirty = true;
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Forces written data to disk according to the flush policy.
+     * @param closing True when the writer is shutting down; always forces pending data.
+     */
+    private void maybeForce(boolean closing) throws IOException {
+        if (!dirty) return;
+        long now = System.currentTimeMillis();
+        boolean force = closing
+                || flushPolicy == FlushPolicy.EVERY_BATCH
+                || (flushPolicy == FlushPolicy.INTERVAL && now - lastForce >= flushIntervalMillis);
+        if (force) {
+            channel.force(false);
+            lastForce = now;
+            dirty = false;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Common operations of a player queue that forms parties of 1 Tank, 1 Healer and 3 DPS
+ * and hands them to its caller.
+ */
+public interface PartyQueue extends PlayerQueue {
+
+    /**
+     * Forms up to maxParties parties into a batch without allocating.
+     * @param batch Receives the parties after any it already holds.
+     * @param maxParties Maximum number of parties to form (also limited by the batch's room).
+     * @return The number of parties added.
+     */
+    int takeParties(PartyBatch batch, int maxParties);
+
+    /**
+     * Forms a party from available players.
+     * @return An array of player strings forming the party, or null if not enough players.
+     */
+    default String[] getParty() {
+        PartyBatch batch = new PartyBatch(1);
+        return takeParties(batch, 1) == 0 ? null : batch.toStrings(0);
+    }
+
+    /**
+     * Forms up to maxParties parties in a single call, as player strings.
+     * Prefer {@link #takeParties} where the strings are not needed.
+     * @param maxParties Maximum number of parties to form.
+     * @return The parties formed, possibly empty.
+     */
+    default List<String[]> getParties(int maxParties) {
+        List<String[]> parties = new ArrayList<>();
+        PartyBatch batch = new PartyBatch(Math.max(1, Math.min(maxParties, 256)));
+        while (parties.size() < maxParties) {
+            batch.clear();
+            int taken = takeParties(batch, maxParties - parties.size());
+            for (int i = 0; i < taken; i++) {
+                parties.add(batch.toStrings(i));
+            }
+            if (taken < batch.capacity()) break;
+        }
+        return parties;
+    }
+}
@@ -0,0 +1,35 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * Decides which free dungeon a party is placed in (see DungeonIdAllocator).
+ * FIRST_FREE takes the lowest free ID near the last one used, which keeps the top of an
+ * elastic pool idle so it can shrink. ROUND_ROBIN continues after the last ID handed out.
+ * LEAST_LOADED takes the free dungeon with the least time served so far. AFFINITY starts
+ * at a dungeon derived from a key (e.g. the party leader), so the same key keeps landing
+ * on the same dungeon while it is free.
+ */
+public enum PlacementPolicy {
+    FIRST_FREE,
+    ROUND_ROBIN,
+    LEAST_LOADED,
+    AFFINITY;
+
+    /**
+     * Parses a policy name, ignoring case, dashes and underscores.
+     * @param name E.g. "first", "roundrobin", "least-loaded" or "affinity".
+     * @return The policy.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static PlacementPolicy fromString(String name) {
+        String key = name.trim().replace("-", "").replace("_", "");
+        if (key.equalsIgnoreCase("first")) return FIRST_FREE;
+        for (PlacementPolicy policy : values()) {
+            if (policy.name().replace("_", "").equalsIgnoreCase(key)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown placement policy: " + name);
+    }
+}
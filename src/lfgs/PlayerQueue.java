@@ -0,0 +1,31 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * Accepts players for matchmaking. Implementations that also hand out the parties they
+ * form implement {@link PartyQueue}; others (e.g. {@link MatchmakingPipeline}) form and
+ * place parties themselves.
+ */
+public interface PlayerQueue {
+
+    /**
+     * Adds a player to the corresponding role queue.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param id Player identifier.
+     * @return True if the player was queued; false if the player was turned away.
+     */
+    boolean addPlayer(String role, int id);
+
+    /**
+     * Checks if a complete party can be formed.
+     * @return True if at least 1 Tank, 1 Healer, and 3 DPS are available.
+     */
+    boolean canFormParty();
+
+    /**
+     * Returns a formatted string with counts of leftover players.
+     * @return A string listing the number of leftover Tanks, Healers, and DPS.
+     */
+    String getLeftoverPlayers();
+}
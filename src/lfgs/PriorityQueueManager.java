@@ -0,0 +1,209 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Random;
+
+/**
+ * Player queue with service classes (e.g. regular and premium players). Each role keeps
+ * one FIFO per class, and a {@link SchedulingPolicy} decides which class head goes into
+ * the next party. Since a policy's score grows with the wait, the best player of a role is
+ * always one of the class heads, so picking a player costs one comparison per class no
+ * matter how many players are queued.
+ */
+public class PriorityQueueManager implements PartyQueue {
+    private static final String[] ROLES = MatchmakingMetrics.ROLES;
+    private static final int[] PARTY_NEEDS = {1, 1, 3};
+
+    private final SchedulingPolicy policy;
+    private final double[] weights;
+    private final double[] mix;
+    private final MatchmakingMetrics metrics;
+    private final Random classes;
+
+    // [role][class]: player IDs and enqueue times.
+    private final LongQueue[][] players;
+    private final LongQueue[][] stamps;
+    private final int[] roleCounts = new int[ROLES.length];
+    private final long[][] served;
+
+    /**
+     * Constructs a PriorityQueueManager.
+     * @param policy How the next player of a role is chosen.
+     * @param weights Per class: the weight (WEIGHTED, must be positive) or head start in
+     *                seconds (AGING); ignored by FIFO. The length sets the number of classes.
+     * @param mix Relative share of each class among players added without a class.
+     * @param seed Seed for the classes of players added without one.
+     * @param metrics Receives queue-wait times when parties are formed (may be null).
+     */
+    public PriorityQueueManager(SchedulingPolicy policy, double[] weights, double[] mix, long seed,
+                                MatchmakingMetrics metrics) {
+        if (weights.length == 0 || mix.length != weights.length) {
+            throw new IllegalArgumentException("Need one weight and one mix share per class.");
+        }
+        for (double weight : weights) {
+            if (policy == SchedulingPolicy.WEIGHTED && !(weight > 0)) {
+                throw new IllegalArgumentException("Weighted classes need positive weights.");
+            }
+        }
+        this.policy = policy;
+        this.weights = weights.clone();
+        this.mix = mix.clone();
+        this.classes = new Random(seed);
+        this.metrics = metrics;
+        this.players = new LongQueue[ROLES.length][weights.length];
+        this.stamps = new LongQueue[ROLES.length][weights.length];
+        this.served = new long[ROLES.length][weights.length];
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int c = 0; c < weights.length; c++) {
+                players[r][c] = new LongQueue();
+                stamps[r][c] = new LongQueue();
+            }
+        }
+    }
+
+    /**
+     * Creates a PriorityQueueManager from -Dlfg.priority.policy=fifo|weighted|aging
+     * (default aging), -Dlfg.priority.weights (per class, default "0,30": premium players
+     * start 30 seconds ahead), -Dlfg.priority.mix (default "4:1") and -Dlfg.seed (default 42).
+     * @param metrics Receives queue-wait times (may be null).
+     * @return The queue.
+     */
+    public static PriorityQueueManager fromSystemProperties(MatchmakingMetrics metrics) {
+        return new PriorityQueueManager(
+                SchedulingPolicy.fromString(System.getProperty("lfg.priority.policy", "aging")),
+                parseList(System.getProperty("lfg.priority.weights", "0,30"), ","),
+                parseList(System.getProperty("lfg.priority.mix", "4:1"), ":"),
+                Long.getLong("lfg.seed", 42L),
+                metrics);
+    }
+
+    private static double[] parseList(String text, String separator) {
+        String[] parts = text.split(separator);
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Adds a player whose class is drawn from the configured mix.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param id Player identifier.
+     * @return True if the player was queued; false if the role is unknown.
+     */
+    public synchronized boolean addPlayer(String role, int id) {
+        double total = 0;
+        for (double share : mix) {
+            total += share;
+        }
+        double pick = classes.nextDouble() * total;
+        int playerClass = 0;
+        while (playerClass < mix.length - 1 && pick >= mix[playerClass]) {
+            pick -= mix[playerClass++];
+        }
+        return addPlayer(role, id, playerClass);
+    }
+
+    /**
+     * Adds a player of a given class.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param id Player identifier.
+     * @param playerClass Class index, 0..classes-1.
+     * @return True if the player was queued; false if the role or class is unknown.
+     */
+    public synchronized boolean addPlayer(String role, int id, int playerClass) {
+        int r = MatchmakingMetrics.roleIndex(role);
+        if (r < 0 || playerClass < 0 || playerClass >= weights.length) return false;
+        players[r][playerClass].add(id);
+        stamps[r][playerClass].add(System.nanoTime());
+        roleCounts[r]++;
+        return true;
+    }
+
+    /**
+     * Checks if a complete party can be formed.
+     * @return True if at least 1 Tank, 1 Healer, and 3 DPS are waiting.
+     */
+    public synchronized boolean canFormParty() {
+        for (int r = 0; r < ROLES.length; r++) {
+            if (roleCounts[r] < PARTY_NEEDS[r]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forms up to maxParties parties into a batch while holding the queue lock once,
+     * each from the highest-scoring players of each role.
+     * @param batch Receives the parties.
+     * @param maxParties Maximum number of parties to form (also limited by the batch's room).
+     * @return The number of parties added.
+     */
+    public synchronized int takeParties(PartyBatch batch, int maxParties) {
+        int taken = 0;
+        long now = System.nanoTime();
+        while (taken < maxParties && batch.remaining() > 0 && canFormParty()) {
+            takeParty(batch, now);
+            taken++;
+        }
+        return taken;
+    }
+
+    /**
+     * Returns a formatted string with counts of leftover players.
+     * @return A string listing the number of leftover Tanks, Healers, and DPS.
+     */
+    public synchronized String getLeftoverPlayers() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Leftover Tanks: ").append(roleCounts[0]).append("\n");
+        sb.append("Leftover Healers: ").append(roleCounts[1]).append("\n");
+        sb.append("Leftover DPS: ").append(roleCounts[2]).append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * @param playerClass Class index.
+     * @return Players of that class placed in parties so far, all roles together.
+     */
+    public synchronized long getServed(int playerClass) {
+        long total = 0;
+        for (int r = 0; r < ROLES.length; r++) {
+            total += served[r][playerClass];
+        }
+        return total;
+    }
+
+    private void takeParty(PartyBatch batch, long now) {
+        int party = batch.addParty();
+        int slot = 0;
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int n = 0; n < PARTY_NEEDS[r]; n++) {
+                batch.setPlayer(party, slot++, take(r, now));
+            }
+        }
+    }
+
+    /**
+     * Takes the head of the class queue whose head scores highest under the policy.
+     */
+    private int take(int role, long now) {
+        int best = -1;
+        double bestScore = 0;
+        for (int c = 0; c < weights.length; c++) {
+            if (stamps[role][c].size() == 0) continue;
+            double score = policy.score(weights[c], now - stamps[role][c].peek());
+            if (best < 0 || score > bestScore) {
+                best = c;
+                bestScore = score;
+            }
+        }
+        long waited = now - stamps[role][best].poll();
+        if (metrics != null) {
+            metrics.recordQueueWait(role, waited);
+        }
+        roleCounts[role]--;
+        served[role][best]++;
+        return (int) players[role][best].poll();
+    }
+}
@@ -0,0 +1,436 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Arrays;
+
+/**
+ * Manages player queues for Tanks, Healers, and DPS.
+ * Forms a party when there is at least 1 Tank, 1 Healer, and 3 DPS.
+ * <p>
+ * Players may register for several roles at once as a role mask (e.g. "Tank/DPS").
+ * Flex players wait in one queue per mask. Parties are then planned from the counts per
+ * mask alone. The number of parties possible follows from Hall's condition over the 7
+ * role subsets. Flex players are assigned greedily, planned for every party still
+ * possible, so taking a few parties never costs a later one. The cost does not depend on
+ * how many players are queued.
+ * <p>
+ * Players are kept as primitive IDs, one queue per role mask, and parties are formed into
+ * a {@link PartyBatch}, so queueing and matching allocate nothing once the queues have grown.
+ */
+public class QueueManager implements PartyQueue {
+    public static final int TANK = 1;
+    public static final int HEALER = 2;
+    public static final int DPS = 4;
+    private static final int[] PARTY_NEEDS = {1, 1, 3};
+    private static final int[] FLEX_MASKS = {3, 5, 6, 7};
+
+    // Player IDs and enqueue times (System.nanoTime) by role mask, 1..7; index 0 is unused.
+    private final LongQueue[] ids = new LongQueue[8];
+    private final LongQueue[] stamps = new LongQueue[8];
+    private int flexCount = 0;
+    private MatchmakingMetrics metrics;
+    // Scratch space for planning a batch; only touched under the lock.
+    private final int[] left = new int[8];
+    private final int[] need = new int[3];
+    private final int[] filled = new int[3];
+    private final int[][] plan = new int[8][3];
+    private final int[] order = new int[7];
+
+    /**
+     * Constructs a QueueManager without metrics.
+     */
+    public QueueManager() {
+        this(null);
+    }
+
+    /**
+     * Constructs a QueueManager.
+     * @param metrics Receives queue-wait times when parties are formed (may be null).
+     */
+    public QueueManager(MatchmakingMetrics metrics) {
+        this.metrics = metrics;
+        for (int mask = 1; mask < 8; mask++) {
+            ids[mask] = new LongQueue();
+            stamps[mask] = new LongQueue();
+        }
+    }
+
+    /**
+     * Adds a player to the corresponding role queue.
+     * @param role Player role ("Tank", "Healer", "DPS"), or several separated by '/' for a
+     *             flex player (e.g. "Tank/DPS").
+     * @param id Player identifier.
+     * @return True if the player was queued; false if a role is unknown.
+     */
+    public synchronized boolean addPlayer(String role, int id) {
+        return addPlayer(roleMask(role), id);
+    }
+
+    /**
+     * Adds a player who can fill any of the roles in a mask.
+     * @param roleMask Bitwise OR of {@link #TANK}, {@link #HEALER} and {@link #DPS}.
+     * @param id Player identifier.
+     * @return True if the player was queued; false if the mask is empty or invalid.
+     */
+    public synchronized boolean addPlayer(int roleMask, int id) {
+        if (roleMask <= 0 || roleMask >= 8) return false;
+        enqueue(roleMask, id, System.nanoTime());
+        return true;
+    }
+
+    private void enqueue(int roleMask, int id, long enqueued) {
+        ids[roleMask].add(id);
+        stamps[roleMask].add(enqueued);
+        if (Integer.bitCount(roleMask) > 1) flexCount++;
+    }
+
+    /**
+     * Parses a role or a set of roles separated by '/', e.g. "Healer" or "Tank/DPS".
+     * @param roles The role names.
+     * @return The role mask, or 0 if any name is unknown.
+     */
+    public static int roleMask(String roles) {
+        int mask = 0;
+        for (String role : roles.split("/")) {
+            int r = MatchmakingMetrics.roleIndex(role.trim());
+            if (r < 0) return 0;
+            mask |= 1 << r;
+        }
+        return mask;
+    }
+
+    /**
+     * Spells out a role mask, e.g. "Tank/DPS".
+     * @param roleMask The role mask.
+     * @return The role names separated by '/'.
+     */
+    public static String roleNames(int roleMask) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < MatchmakingMetrics.ROLES.length; r++) {
+            if ((roleMask & (1 << r)) == 0) continue;
+            if (sb.length() > 0) sb.append('/');
+            sb.append(MatchmakingMetrics.ROLES[r]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if a complete party can be formed.
+     * @return True if at least 1 Tank, 1 Healer, and 3 DPS are available.
+     */
+    public synchronized boolean canFormParty() {
+        if (flexCount == 0) {
+            return ids[TANK].size() >= 1 && ids[HEALER].size() >= 1 && ids[DPS].size() >= 3;
+        }
+        return maxParties() >= 1;
+    }
+
+    /**
+     * Forms up to maxParties parties into a batch while holding the queue lock once.
+     * @param batch Receives the parties.
+     * @param maxParties Maximum number of parties to form (also limited by the batch's room).
+     * @return The number of parties added.
+     */
+    public synchronized int takeParties(PartyBatch batch, int maxParties) {
+        int count = Math.min(maxParties, batch.remaining());
+        if (flexCount > 0) {
+            int possible = maxParties();
+            return takeFlexParties(batch, Math.min(count, possible), possible);
+        }
+        count = Math.min(count, Math.min(Math.min(ids[TANK].size(), ids[HEALER].size()), ids[DPS].size() / 3));
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            batch.addParty(take(TANK, 0, now), take(HEALER, 1, now),
+                    take(DPS, 2, now), take(DPS, 2, now), take(DPS, 2, now));
+        }
+        return Math.max(count, 0);
+    }
+
+    /**
+     * Returns how many complete parties the queued players could form. By Hall's condition,
+     * P parties are possible iff every set of roles S gets at least as many players able to
+     * fill one of them as S needs, so P is the minimum over S of players(S) / needs(S).
+     * Reads the counts per mask into left. Callers hold the lock.
+     */
+    private int maxParties() {
+        countByMask(left);
+        long best = Long.MAX_VALUE;
+        for (int roles = 1; roles < 8; roles++) {
+            long players = 0;
+            for (int mask = 1; mask < 8; mask++) {
+                if ((mask & roles) != 0) players += left[mask];
+            }
+            int needs = 0;
+            for (int r = 0; r < 3; r++) {
+                if ((roles & (1 << r)) != 0) needs += PARTY_NEEDS[r];
+            }
+            best = Math.min(best, players / needs);
+        }
+        return (int) best;
+    }
+
+    /**
+     * Forms count parties using flex players where needed. Roles are planned for all
+     * possible parties, not just these, so taking a few never costs a later party.
+     * Masks are visited oldest head first, and each gives a role as many players as it can
+     * without making the rest of the plan impossible. Callers hold the lock.
+     */
+    private int takeFlexParties(PartyBatch batch, int count, int possible) {
+        if (count <= 0) return 0;
+        countByMask(left);
+        for (int r = 0; r < 3; r++) {
+            need[r] = PARTY_NEEDS[r] * possible;
+        }
+        int masks = 0;
+        for (int mask = 1; mask < 8; mask++) {
+            Arrays.fill(plan[mask], 0);
+            if (left[mask] == 0) continue;
+            // Insertion sort by the enqueue time of the mask's oldest player.
+            int i = masks++;
+            while (i > 0 && stamps[order[i - 1]].peek() - stamps[mask].peek() > 0) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = mask;
+        }
+        boolean progress = true;
+        while (progress && need[0] + need[1] + need[2] > 0) {
+            progress = false;
+            for (int i = 0; i < masks; i++) {
+                int mask = order[i];
+                for (int r = 0; r < 3; r++) {
+                    if ((mask & (1 << r)) == 0 || left[mask] == 0 || need[r] == 0) continue;
+                    int give = Math.min(left[mask], need[r]);
+                    // Each player given to r is lost to every role set S that r is not in.
+                    for (int roles = 1; roles < 8 && give > 0; roles++) {
+                        if ((roles & (1 << r)) == 0 && (roles & mask) != 0) {
+                            give = Math.min(give, slack(roles));
+                        }
+                    }
+                    if (give > 0) {
+                        plan[mask][r] += give;
+                        left[mask] -= give;
+                        need[r] -= give;
+                        progress = true;
+                    }
+                }
+            }
+        }
+        if (need[0] + need[1] + need[2] > 0) {
+            throw new IllegalStateException("Could not plan " + possible + " parties.");
+        }
+
+        // Rows first, then each role's players in mask order: Tanks and Healers one per
+        // party, DPS three per party. What the plan holds beyond count parties stays queued.
+        int first = batch.size();
+        for (int p = 0; p < count; p++) {
+            batch.addParty();
+        }
+        Arrays.fill(filled, 0);
+        long now = System.nanoTime();
+        for (int i = 0; i < masks; i++) {
+            int mask = order[i];
+            for (int r = 0; r < 3; r++) {
+                for (int k = 0; k < plan[mask][r] && filled[r] < PARTY_NEEDS[r] * count; k++) {
+                    int n = filled[r]++;
+                    int party = r == 2 ? n / 3 : n;
+                    int slot = r == 2 ? 2 + n % 3 : r;
+                    batch.setPlayer(first + party, slot, take(mask, r, now));
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Players left that can fill a role in the set, minus what the set still needs.
+     */
+    private int slack(int roles) {
+        int players = 0;
+        for (int mask = 1; mask < 8; mask++) {
+            if ((mask & roles) != 0) players += left[mask];
+        }
+        for (int r = 0; r < 3; r++) {
+            if ((roles & (1 << r)) != 0) players -= need[r];
+        }
+        return players;
+    }
+
+    private void countByMask(int[] counts) {
+        counts[0] = 0;
+        for (int mask = 1; mask < 8; mask++) {
+            counts[mask] = ids[mask].size();
+        }
+    }
+
+    /**
+     * Takes the oldest player of a mask to fill a role, recording how long they waited.
+     * Callers hold the lock and know the mask's queue is not empty.
+     */
+    private int take(int mask, int roleIndex, long now) {
+        long enqueued = stamps[mask].poll();
+        if (metrics != null) {
+            metrics.recordQueueWait(roleIndex, now - enqueued);
+        }
+        if (mask != TANK && mask != HEALER && mask != DPS) flexCount--;
+        return (int) ids[mask].poll();
+    }
+
+    /**
+     * Returns the roles queued players have most of for what a party needs of them; more
+     * players for these roles alone would not let another party form sooner.
+     * @return A role mask of the most plentiful roles (all three when nobody is queued).
+     */
+    public synchronized int surplusRoles() {
+        countByMask(left);
+        // Players able to fill each role per player a party needs of it: 3x Tanks and
+        // Healers against DPS, so no division is needed.
+        long tanks = 0, healers = 0, dps = 0;
+        for (int mask = 1; mask < 8; mask++) {
+            if ((mask & TANK) != 0) tanks += 3L * left[mask];
+            if ((mask & HEALER) != 0) healers += 3L * left[mask];
+            if ((mask & DPS) != 0) dps += left[mask];
+        }
+        long most = Math.max(Math.max(tanks, healers), dps);
+        int roles = 0;
+        if (tanks == most) roles |= TANK;
+        if (healers == most) roles |= HEALER;
+        if (dps == most) roles |= DPS;
+        return roles;
+    }
+
+    /**
+     * Returns the number of queued players registered for a role only (flex players are
+     * counted by {@link #getWaitingCount(int)}).
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @return The count, or 0 if the role is unknown.
+     */
+    public synchronized int getRoleCount(String role) {
+        int r = MatchmakingMetrics.roleIndex(role);
+        return r < 0 ? 0 : ids[1 << r].size();
+    }
+
+    /**
+     * Returns the number of queued players registered with exactly the given roles.
+     * @param roleMask The role mask, 1..7.
+     * @return The count.
+     */
+    public synchronized int getWaitingCount(int roleMask) {
+        return roleMask > 0 && roleMask < 8 ? ids[roleMask].size() : 0;
+    }
+
+    /**
+     * @return Number of queued players, flex players included.
+     */
+    public synchronized int getQueuedCount() {
+        int total = 0;
+        for (int mask = 1; mask < 8; mask++) {
+            total += ids[mask].size();
+        }
+        return total;
+    }
+
+    /**
+     * Removes up to max of the most recently queued players of a role, for another
+     * queue to take over. Taking from the tail leaves this queue's oldest players,
+     * which its owner forms parties from next, untouched.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param max Maximum number of players to remove.
+     * @param players Receives the player IDs, oldest first.
+     * @param stamps Receives each player's enqueue time.
+     * @return Number of players removed.
+     */
+    public synchronized int stealPlayers(String role, int max, int[] players, long[] stamps) {
+        int r = MatchmakingMetrics.roleIndex(role);
+        if (r < 0) return 0;
+        LongQueue queue = ids[1 << r];
+        LongQueue queueStamps = this.stamps[1 << r];
+        int count = Math.min(max, queue.size());
+        for (int i = count - 1; i >= 0; i--) {
+            players[i] = (int) queue.pollLast();
+            stamps[i] = queueStamps.pollLast();
+        }
+        return count;
+    }
+
+    /**
+     * Appends players taken from another queue, keeping their original enqueue times.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param players The player IDs, oldest first.
+     * @param stamps Each player's enqueue time.
+     * @param count Number of leading entries to add.
+     */
+    public synchronized void addStolenPlayers(String role, int[] players, long[] stamps, int count) {
+        int r = MatchmakingMetrics.roleIndex(role);
+        if (r < 0) return;
+        for (int i = 0; i < count; i++) {
+            enqueue(1 << r, players[i], stamps[i]);
+        }
+    }
+
+    /**
+     * Copies every queued player into a checkpoint state, oldest first per role.
+     * @param state Receives the players.
+     * @param nowMillis Wall-clock time of the checkpoint, used to turn wait times into enqueue times.
+     */
+    public synchronized void exportTo(DungeonCheckpoint.State state, long nowMillis) {
+        long nowNanos = System.nanoTime();
+        state.ensureQueueCapacity(getQueuedCount());
+        int n = 0;
+        // Single roles are saved by role index (0..2), flex players by their mask.
+        for (int mask : new int[]{TANK, HEALER, DPS, 3, 5, 6, 7}) {
+            int role = Integer.bitCount(mask) == 1 ? Integer.numberOfTrailingZeros(mask) : mask;
+            for (int i = 0; i < ids[mask].size(); i++) {
+                state.queueRoles[n] = role;
+                state.queueIDs[n] = (int) ids[mask].get(i);
+                state.queueEnqueuedMillis[n] = nowMillis - (nowNanos - stamps[mask].get(i)) / 1_000_000;
+                n++;
+            }
+        }
+        state.queued = n;
+    }
+
+    /**
+     * Queues the players saved in a checkpoint. Each keeps the wait it had built up when the
+     * checkpoint was taken; time the process was down does not count.
+     * @param state The restored state.
+     */
+    public synchronized void restoreFrom(DungeonCheckpoint.State state) {
+        long nowNanos = System.nanoTime();
+        for (int i = 0; i < state.queued; i++) {
+            long waitedMillis = Math.max(0, state.takenMillis - state.queueEnqueuedMillis[i]);
+            int role = state.queueRoles[i];
+            int mask = role < MatchmakingMetrics.ROLES.length ? 1 << role : role;
+            enqueue(mask, state.queueIDs[i], nowNanos - waitedMillis * 1_000_000);
+        }
+    }
+
+    /**
+     * Returns a formatted string with counts of leftover players.
+     * @return A string listing the number of leftover Tanks, Healers, and DPS, then flex
+     *         players by role mask.
+     */
+    public synchronized String getLeftoverPlayers() {
+        countByMask(left);
+        return formatLeftovers(left);
+    }
+
+    /**
+     * Formats leftover counts: the three single roles always, flex masks only when not empty.
+     * @param byMask Player counts indexed by role mask.
+     * @return The listing.
+     */
+    static String formatLeftovers(int[] byMask) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Leftover Tanks: ").append(byMask[TANK]).append("\n");
+        sb.append("Leftover Healers: ").append(byMask[HEALER]).append("\n");
+        sb.append("Leftover DPS: ").append(byMask[DPS]).append("\n");
+        for (int mask : FLEX_MASKS) {
+            if (byMask[mask] > 0) {
+                sb.append("Leftover ").append(roleNames(mask)).append(": ").append(byMask[mask]).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
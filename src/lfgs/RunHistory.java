@@ -0,0 +1,258 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity history of finished runs kept in memory as primitive columns.
+ * Once full, each new run overwrites the oldest one, so memory does not grow with the
+ * number of runs. Each record also points at the previous run in the same dungeon, which
+ * lets per-dungeon questions follow that chain instead of scanning the whole buffer.
+ * Queries cover the runs still held; {@link #getOldestFinishMillis()} tells how far back
+ * that reaches.
+ */
+public class RunHistory {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final int[] partyIDs;
+    private final int[] dungeonIDs;
+    private final long[] startMillis;
+    private final int[] durations;
+    private final long[] previousInDungeon; // sequence number of the dungeon's previous run, or -1
+    private long[] lastInDungeon = new long[64]; // by dungeon ID: sequence number + 1, 0 = none
+    private long next = 0; // sequence number of the next run recorded
+    private int[] scratch; // durations gathered for a percentile, created on first use
+
+    /**
+     * A reusable block of runs copied out of the history, oldest first.
+     */
+    public static class Runs {
+        public final int[] partyIDs;
+        public final int[] dungeonIDs;
+        public final long[] startMillis;
+        public final int[] durations;
+        private int size = 0;
+
+        /**
+         * Constructs an empty Runs block.
+         * @param capacity Maximum number of runs it holds.
+         */
+        public Runs(int capacity) {
+            this.partyIDs = new int[capacity];
+            this.dungeonIDs = new int[capacity];
+            this.startMillis = new long[capacity];
+            this.durations = new int[capacity];
+        }
+
+        /**
+         * @return The number of runs copied in.
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Constructs a RunHistory.
+     * @param capacity Number of most recent runs to keep (at least 1).
+     */
+    public RunHistory(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+        this.partyIDs = new int[capacity];
+        this.dungeonIDs = new int[capacity];
+        this.startMillis = new long[capacity];
+        this.durations = new int[capacity];
+        this.previousInDungeon = new long[capacity];
+    }
+
+    /**
+     * Creates a RunHistory sized from -Dlfg.history (default 8192).
+     * @return The history.
+     */
+    public static RunHistory fromSystemProperties() {
+        return new RunHistory(Math.max(1, Integer.getInteger("lfg.history", DEFAULT_CAPACITY)));
+    }
+
+    /**
+     * Records a finished run, overwriting the oldest one if the history is full.
+     * @param partyID The party identifier.
+     * @param dungeonID The dungeon identifier (1 or more).
+     * @param start When the run started (epoch or simulated milliseconds).
+     * @param duration The time (in seconds) the party took.
+     */
+    public synchronized void record(int partyID, int dungeonID, long start, int duration) {
+        if (dungeonID >= lastInDungeon.length) {
+            lastInDungeon = Arrays.copyOf(lastInDungeon, Math.max(dungeonID + 1, 2 * lastInDungeon.length));
+        }
+        int index = (int) (next % partyIDs.length);
+        partyIDs[index] = partyID;
+        dungeonIDs[index] = dungeonID;
+        startMillis[index] = start;
+        durations[index] = duration;
+        previousInDungeon[index] = lastInDungeon[dungeonID] - 1;
+        lastInDungeon[dungeonID] = next + 1;
+        next++;
+    }
+
+    /**
+     * @return Number of runs held (at most the capacity).
+     */
+    public synchronized int size() {
+        return (int) Math.min(next, partyIDs.length);
+    }
+
+    /**
+     * @return Maximum number of runs held.
+     */
+    public int capacity() {
+        return partyIDs.length;
+    }
+
+    /**
+     * @return Number of runs recorded since the history was created, overwritten ones included.
+     */
+    public synchronized long getTotalRecorded() {
+        return next;
+    }
+
+    /**
+     * @return When the oldest run still held finished, or 0 if the history is empty.
+     */
+    public synchronized long getOldestFinishMillis() {
+        if (next == 0) return 0;
+        return finishMillis(index(oldest()));
+    }
+
+    /**
+     * Copies the most recent runs, oldest first.
+     * @param count Maximum number of runs to copy.
+     * @param out Receives the runs; its previous contents are replaced.
+     * @return Number of runs copied.
+     */
+    public synchronized int recent(int count, Runs out) {
+        int n = (int) Math.min(Math.min(count, out.partyIDs.length), Math.min(next, partyIDs.length));
+        for (int i = 0; i < n; i++) {
+            int index = index(next - n + i);
+            out.partyIDs[i] = partyIDs[index];
+            out.dungeonIDs[i] = dungeonIDs[index];
+            out.startMillis[i] = startMillis[index];
+            out.durations[i] = durations[index];
+        }
+        out.size = n;
+        return n;
+    }
+
+    /**
+     * Counts the runs that finished within a window ending at a given time. Runs are held
+     * in the order they were recorded, so the count walks back from the newest and stops at
+     * the first run that finished before the window.
+     * @param windowMillis Length of the window.
+     * @param nowMillis End of the window (epoch or simulated milliseconds).
+     * @return Number of runs that finished in (nowMillis - windowMillis, nowMillis].
+     */
+    public synchronized int countFinished(long windowMillis, long nowMillis) {
+        long from = nowMillis - windowMillis;
+        int count = 0;
+        for (long seq = next - 1; seq >= oldest(); seq--) {
+            long finish = finishMillis(index(seq));
+            if (finish <= from) break;
+            if (finish <= nowMillis) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the completion rate over a window ending at a given time.
+     * @param windowMillis Length of the window (more than 0).
+     * @param nowMillis End of the window (epoch or simulated milliseconds).
+     * @return Runs finished per second in the window.
+     */
+    public double throughput(long windowMillis, long nowMillis) {
+        return countFinished(windowMillis, nowMillis) * 1000.0 / windowMillis;
+    }
+
+    /**
+     * Counts the held runs of a dungeon.
+     * @param dungeonID The dungeon identifier, or 0 for every dungeon.
+     * @return Number of runs.
+     */
+    public synchronized int getRunCount(int dungeonID) {
+        if (dungeonID == 0) return size();
+        int count = 0;
+        for (long seq = last(dungeonID); seq >= oldest(); seq = previousInDungeon[index(seq)]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean clear time of the held runs of a dungeon.
+     * @param dungeonID The dungeon identifier, or 0 for every dungeon.
+     * @return Mean time in seconds, or NaN if there are no runs.
+     */
+    public synchronized double meanClearTime(int dungeonID) {
+        long total = 0;
+        int count = 0;
+        if (dungeonID == 0) {
+            for (long seq = oldest(); seq < next; seq++) {
+                total += durations[index(seq)];
+                count++;
+            }
+        } else {
+            for (long seq = last(dungeonID); seq >= oldest(); seq = previousInDungeon[index(seq)]) {
+                total += durations[index(seq)];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : (double) total / count;
+    }
+
+    /**
+     * Returns a clear-time percentile of the held runs of a dungeon (nearest rank).
+     * @param dungeonID The dungeon identifier, or 0 for every dungeon.
+     * @param percentile Percentile between 0 and 100.
+     * @return Time in seconds, or -1 if there are no runs.
+     */
+    public synchronized int clearTimePercentile(int dungeonID, double percentile) {
+        if (scratch == null) {
+            scratch = new int[partyIDs.length];
+        }
+        int count = 0;
+        if (dungeonID == 0) {
+            for (long seq = oldest(); seq < next; seq++) {
+                scratch[count++] = durations[index(seq)];
+            }
+        } else {
+            for (long seq = last(dungeonID); seq >= oldest(); seq = previousInDungeon[index(seq)]) {
+                scratch[count++] = durations[index(seq)];
+            }
+        }
+        if (count == 0) return -1;
+        Arrays.sort(scratch, 0, count);
+        int rank = (int) Math.max(1, Math.ceil(percentile / 100.0 * count));
+        return scratch[Math.min(rank, count) - 1];
+    }
+
+    /**
+     * @return Sequence number of the oldest run held.
+     */
+    private long oldest() {
+        return Math.max(0, next - partyIDs.length);
+    }
+
+    /**
+     * @return Sequence number of a dungeon's newest run, or -1 if it has none.
+     */
+    private long last(int dungeonID) {
+        return dungeonID > 0 && dungeonID < lastInDungeon.length ? lastInDungeon[dungeonID] - 1 : -1;
+    }
+
+    private int index(long seq) {
+        return (int) (seq % partyIDs.length);
+    }
+
+    private long finishMillis(int index) {
+        return startMillis[index] + durations[index] * 1000L;
+    }
+}
@@ -0,0 +1,25 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * Receives the start and end of every dungeon run a {@link DungeonManager} executes.
+ * Called on the thread that starts or completes the run, so implementations should be quick.
+ */
+public interface RunListener {
+
+    /**
+     * Called once a party has been placed in a dungeon.
+     * @param dungeonID The dungeon the party entered.
+     * @param partyID The party inside.
+     */
+    void runStarted(int dungeonID, int partyID);
+
+    /**
+     * Called after the dungeon has been freed and the run recorded.
+     * @param dungeonID The dungeon that finished.
+     * @param partyID The party that was inside.
+     * @param clearTime The time (in seconds) the run took.
+     */
+    void runFinished(int dungeonID, int partyID, int clearTime);
+}
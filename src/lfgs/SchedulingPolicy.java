@@ -0,0 +1,51 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+/**
+ * Decides which waiting player of a role goes into the next party (see PriorityQueueManager).
+ * Every policy scores a player from their class and how long they have waited, and the
+ * score only grows with the wait, so within one class the longest-waiting player always
+ * scores highest and only the head of each class queue has to be compared.
+ * FIFO ignores the class, WEIGHTED multiplies the wait by the class weight, and AGING
+ * gives each class a head start (in seconds) after which everyone ages at the same rate,
+ * so nobody waits forever behind a higher class.
+ */
+public enum SchedulingPolicy {
+    FIFO,
+    WEIGHTED,
+    AGING;
+
+    /**
+     * Scores a waiting player; the highest score is taken first.
+     * @param weight The class weight (WEIGHTED) or head start in seconds (AGING).
+     * @param waitedNanos How long the player has waited.
+     * @return The score.
+     */
+    public double score(double weight, long waitedNanos) {
+        double waitedSeconds = waitedNanos / 1e9;
+        switch (this) {
+            case WEIGHTED:
+                return weight * waitedSeconds;
+            case AGING:
+                return weight + waitedSeconds;
+            default:
+                return waitedSeconds;
+        }
+    }
+
+    /**
+     * Parses a policy name, ignoring case.
+     * @param name "fifo", "weighted" or "aging".
+     * @return The policy.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static SchedulingPolicy fromString(String name) {
+        for (SchedulingPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name.trim())) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scheduling policy: " + name);
+    }
+}
@@ -0,0 +1,262 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits matchmaking into independent shards, each with its own role queues,
+ * its own slice of the dungeon pool and its own worker thread.
+ * Players are routed to a shard by ID. A shard that is short on a role steals
+ * players from its neighbours, and a shard whose dungeons are all busy places
+ * parties in a neighbour's idle dungeons before it waits on its own.
+ */
+public class ShardedMatchmaker implements PartyQueue {
+    private static final String[] ROLES = {"Tank", "Healer", "DPS"};
+    private static final int[] PARTY_NEEDS = {1, 1, 3};
+
+    private final QueueManager[] queues;
+    private final MatchmakingMetrics metrics;
+    private DungeonManager[] pools;
+    // For each shard, the nearest shard (itself included) that owns at least one dungeon.
+    private int[] home;
+
+    /**
+     * Constructs a ShardedMatchmaker. Dungeon pools are created later by {@link #start}.
+     * @param shards Number of shards (at least 1).
+     * @param metrics Receives queue-wait, slot-wait and run-time data (may be null).
+     */
+    public ShardedMatchmaker(int shards, MatchmakingMetrics metrics) {
+        this.metrics = metrics;
+        this.queues = new QueueManager[Math.max(1, shards)];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new QueueManager(metrics);
+        }
+    }
+
+    /**
+     * @return Number of shards.
+     */
+    public int getShardCount() {
+        return queues.length;
+    }
+
+    /**
+     * Adds a player to the shard chosen by its ID.
+     * @param role Player role ("Tank", "Healer", "DPS"), or several separated by '/'.
+     * @param id Player identifier.
+     * @return True if the player was queued; false if the role is unknown.
+     */
+    public boolean addPlayer(String role, int id) {
+        return queues[Math.floorMod(id, queues.length)].addPlayer(role, id);
+    }
+
+    /**
+     * Checks whether a party can be formed from all shards' players together.
+     * @return True if at least 1 Tank, 1 Healer, and 3 DPS are queued across the shards.
+     */
+    public boolean canFormParty() {
+        // Flex players are not moved between shards, so they only count within their own.
+        for (QueueManager queue : queues) {
+            if (queue.canFormParty()) return true;
+        }
+        for (int r = 0; r < ROLES.length; r++) {
+            if (totalCount(ROLES[r]) < PARTY_NEEDS[r]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forms up to maxParties parties into a batch, taking from each shard in turn and
+     * pulling missing roles into a shard when needed.
+     * @param batch Receives the parties.
+     * @param maxParties Maximum number of parties to form (also limited by the batch's room).
+     * @return The number of parties added.
+     */
+    public int takeParties(PartyBatch batch, int maxParties) {
+        int taken = 0;
+        for (int i = 0; i < queues.length && taken < maxParties && batch.remaining() > 0; i++) {
+            if (!queues[i].canFormParty() && !rebalance(i)) continue;
+            taken += queues[i].takeParties(batch, maxParties - taken);
+        }
+        return taken;
+    }
+
+    /**
+     * Returns the leftover counts of all shards merged together.
+     * @return A string listing the number of leftover Tanks, Healers, and DPS.
+     */
+    public String getLeftoverPlayers() {
+        int[] byMask = new int[8];
+        for (QueueManager queue : queues) {
+            for (int mask = 1; mask < 8; mask++) {
+                byMask[mask] += queue.getWaitingCount(mask);
+            }
+        }
+        return QueueManager.formatLeftovers(byMask);
+    }
+
+    /**
+     * Splits the dungeon pool between the shards and runs one worker per shard
+     * until no more parties can be formed. Returns once every party has been placed;
+     * runs may still be in progress.
+     * @param maxDungeons Total number of dungeons across all shards.
+     * @param minTime Minimum dungeon run time (seconds).
+     * @param maxTime Maximum dungeon run time (seconds).
+     * @param dungeonStatus Reference to the live status updater.
+     * @param mode How dungeon runs are executed.
+     * @param batchSize Maximum number of parties a worker forms at once.
+     * @throws IllegalArgumentException if there are no dungeons to split.
+     */
+    public void start(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus, ExecutionMode mode,
+                      int batchSize) {
+        if (maxDungeons < 1) {
+            // Every shard's parties go to the nearest shard with dungeons; there must be one.
+            throw new IllegalArgumentException("Sharded matchmaking needs at least one dungeon.");
+        }
+        createPools(maxDungeons, minTime, maxTime, dungeonStatus, mode);
+
+        Thread[] workers = new Thread[queues.length];
+        for (int i = 0; i < workers.length; i++) {
+            final int shard = i;
+            workers[i] = new Thread(() -> work(shard, batchSize), "lfg-shard-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Workers can stop with a party's worth of players spread over shards they were
+        // both stealing from; one last single-threaded pass picks those up.
+        PartyBatch batch = new PartyBatch(Math.max(1, batchSize));
+        while (takeParties(batch, batch.capacity()) > 0) {
+            place(0, batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Checks if every shard's dungeons are free.
+     * @return True if no dungeon is running a party.
+     */
+    public boolean allDungeonsFree() {
+        if (pools == null) return true;
+        for (DungeonManager pool : pools) {
+            if (!pool.allDungeonsFree()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops every shard's scheduler.
+     */
+    public void shutdown() {
+        if (pools == null) return;
+        for (DungeonManager pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    private void createPools(int maxDungeons, int minTime, int maxTime, DungeonStatus dungeonStatus,
+                             ExecutionMode mode) {
+        pools = new DungeonManager[queues.length];
+        AtomicInteger partyCounter = new AtomicInteger();
+        int offset = 0;
+        for (int i = 0; i < pools.length; i++) {
+            int size = maxDungeons / pools.length + (i < maxDungeons % pools.length ? 1 : 0);
+            pools[i] = new DungeonManager(size, minTime, maxTime, dungeonStatus, mode, metrics, offset, partyCounter);
+            offset += size;
+        }
+        if (metrics != null) {
+            // Each manager registered only its own slice; report the pool as a whole.
+            metrics.setDungeonPool(maxDungeons, () -> {
+                int busy = 0;
+                for (DungeonManager pool : pools) {
+                    busy += pool.getBusyDungeons();
+                }
+                return busy;
+            });
+        }
+
+        home = new int[pools.length];
+        for (int i = 0; i < pools.length; i++) {
+            int h = i;
+            while (pools[h].getMaxDungeons() == 0) {
+                h = (h + 1) % pools.length;
+            }
+            home[i] = h;
+        }
+    }
+
+    /**
+     * Worker loop of one shard: form parties locally, steal missing roles when short,
+     * and stop once the shard cannot form a party even after stealing.
+     */
+    private void work(int shard, int batchSize) {
+        QueueManager queue = queues[shard];
+        PartyBatch batch = new PartyBatch(Math.max(1, batchSize));
+        while (queue.canFormParty() || rebalance(shard)) {
+            queue.takeParties(batch, batch.capacity());
+            place(shard, batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Places each party of a batch in the shard's own dungeons, then in any neighbour's
+     * idle dungeon, and otherwise waits for a dungeon in the shard's home pool.
+     */
+    private void place(int shard, PartyBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            boolean placed = false;
+            for (int k = 0; k < pools.length && !placed; k++) {
+                placed = pools[(shard + k) % pools.length].tryAssignParty(batch, i);
+            }
+            if (!placed) {
+                pools[home[shard]].assignParty(batch, i);
+            }
+        }
+    }
+
+    /**
+     * Steals players for every role the shard is short on, visiting the other shards in ring order.
+     * Each steal takes the shortfall or half of the victim's players, whichever is larger,
+     * so that a shard does not come back for the same role on its next party.
+     * @return True if the shard can now form a party.
+     */
+    private boolean rebalance(int shard) {
+        QueueManager queue = queues[shard];
+        int[] players = null;
+        long[] stamps = null;
+        for (int r = 0; r < ROLES.length; r++) {
+            String role = ROLES[r];
+            int missing = PARTY_NEEDS[r] - queue.getRoleCount(role);
+            for (int k = 1; k < queues.length && missing > 0; k++) {
+                QueueManager victim = queues[(shard + k) % queues.length];
+                int want = Math.max(missing, victim.getRoleCount(role) / 2);
+                if (want == 0) continue;
+                if (players == null || players.length < want) {
+                    players = new int[want];
+                    stamps = new long[want];
+                }
+                int taken = victim.stealPlayers(role, want, players, stamps);
+                queue.addStolenPlayers(role, players, stamps, taken);
+                missing -= taken;
+            }
+            if (missing > 0) return false;
+        }
+        return queue.canFormParty();
+    }
+
+    private int totalCount(String role) {
+        int total = 0;
+        for (QueueManager queue : queues) {
+            total += queue.getRoleCount(role);
+        }
+        return total;
+    }
+}
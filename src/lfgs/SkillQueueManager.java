@@ -0,0 +1,306 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Skill-aware player queue. Players carry a rating and are kept in FIFO buckets per
+ * role and rating band, with a Fenwick tree of bucket counts per role. A party is
+ * built around an anchor player: every bucket head is a candidate anchor, oldest first,
+ * and the first one whose rating window holds 1 Tank, 1 Healer and 3 DPS is used.
+ * The window starts at a base tolerance and widens with the anchor's wait, so nobody
+ * waits forever. Work per party depends on the number of buckets, not on the number
+ * of queued players. Ratings are matched to bucket precision.
+ */
+public class SkillQueueManager implements PartyQueue {
+    public static final int MAX_RATING = 5000;
+    public static final int DEFAULT_RATING = 1500;
+    private static final String[] ROLES = MatchmakingMetrics.ROLES;
+    private static final int[] PARTY_NEEDS = {1, 1, 3};
+
+    private final int bucketWidth;
+    private final int bucketCount;
+    private final int baseTolerance;
+    private final int maxTolerance;
+    private final double widenPerSecond;
+    private final MatchmakingMetrics metrics;
+    private final Random ratings;
+
+    // [role][bucket]: packed (id << 32 | rating) and enqueue times, created on first use.
+    private final LongQueue[][] players;
+    private final LongQueue[][] stamps;
+    // [role][1..bucketCount]: Fenwick tree over bucket sizes.
+    private final int[][] counts;
+    private final int[] roleCounts = new int[ROLES.length];
+
+    // Scratch space for choosing an anchor; only touched under the lock.
+    private final long[] candidates;
+    private int anchorRole;
+    private int anchorBucket;
+    private int windowLow;
+    private int windowHigh;
+
+    /**
+     * Constructs a SkillQueueManager.
+     * @param bucketWidth Rating points per bucket (at least 16).
+     * @param baseTolerance Rating distance allowed from the anchor when it has just joined.
+     * @param widenPerSecond Extra rating distance allowed per second the anchor has waited.
+     * @param maxTolerance Upper bound on the rating distance.
+     * @param seed Seed for the ratings of players added without one.
+     * @param metrics Receives queue-wait times when parties are formed (may be null).
+     */
+    public SkillQueueManager(int bucketWidth, int baseTolerance, double widenPerSecond, int maxTolerance,
+                             long seed, MatchmakingMetrics metrics) {
+        if (bucketWidth < 16) throw new IllegalArgumentException("Bucket width must be at least 16.");
+        this.bucketWidth = bucketWidth;
+        this.bucketCount = (MAX_RATING + bucketWidth - 1) / bucketWidth;
+        this.baseTolerance = baseTolerance;
+        this.widenPerSecond = widenPerSecond;
+        this.maxTolerance = Math.max(baseTolerance, maxTolerance);
+        this.ratings = new Random(seed);
+        this.metrics = metrics;
+        this.players = new LongQueue[ROLES.length][bucketCount];
+        this.stamps = new LongQueue[ROLES.length][bucketCount];
+        this.counts = new int[ROLES.length][bucketCount + 1];
+        this.candidates = new long[ROLES.length * bucketCount];
+    }
+
+    /**
+     * Creates a SkillQueueManager from -Dlfg.skill.bucket (default 50), -Dlfg.skill.base
+     * (default 100), -Dlfg.skill.widen (per second, default 50), -Dlfg.skill.max
+     * (default 1000) and -Dlfg.seed (default 42).
+     * @param metrics Receives queue-wait times (may be null).
+     * @return The queue.
+     */
+    public static SkillQueueManager fromSystemProperties(MatchmakingMetrics metrics) {
+        return new SkillQueueManager(
+                Math.max(16, Integer.getInteger("lfg.skill.bucket", 50)),
+                Math.max(0, Integer.getInteger("lfg.skill.base", 100)),
+                Double.parseDouble(System.getProperty("lfg.skill.widen", "50")),
+                Math.max(0, Integer.getInteger("lfg.skill.max", 1000)),
+                Long.getLong("lfg.seed", 42L),
+                metrics);
+    }
+
+    /**
+     * Adds a player without a known rating; one is drawn around {@link #DEFAULT_RATING}.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param id Player identifier.
+     * @return True if the player was queued; false if the role is unknown.
+     */
+    public synchronized boolean addPlayer(String role, int id) {
+        return addPlayer(role, id, (int) Math.round(DEFAULT_RATING + 300 * ratings.nextGaussian()));
+    }
+
+    /**
+     * Adds a rated player to its role and rating bucket.
+     * @param role Player role ("Tank", "Healer", "DPS").
+     * @param id Player identifier.
+     * @param rating Skill rating, clamped to 0..{@link #MAX_RATING}-1.
+     * @return True if the player was queued; false if the role is unknown.
+     */
+    public synchronized boolean addPlayer(String role, int id, int rating) {
+        int r = MatchmakingMetrics.roleIndex(role);
+        if (r < 0) return false;
+        rating = Math.max(0, Math.min(MAX_RATING - 1, rating));
+        int b = bucketOf(rating);
+        if (players[r][b] == null) {
+            players[r][b] = new LongQueue();
+            stamps[r][b] = new LongQueue();
+        }
+        players[r][b].add(((long) id << 32) | rating);
+        stamps[r][b].add(System.nanoTime());
+        addCount(r, b, 1);
+        roleCounts[r]++;
+        return true;
+    }
+
+    /**
+     * Checks if a party within tolerance can be formed right now.
+     * @return True if some anchor's rating window holds 1 Tank, 1 Healer, and 3 DPS.
+     */
+    public synchronized boolean canFormParty() {
+        return findAnchor(System.nanoTime(), false);
+    }
+
+    /**
+     * Checks if a party could be formed once the waiting players' tolerance has fully
+     * widened, i.e. whether waiting (rather than more arrivals) will produce a party.
+     * @return True if a party is possible at the maximum tolerance.
+     */
+    public synchronized boolean isMatchPending() {
+        return findAnchor(System.nanoTime(), true);
+    }
+
+    /**
+     * Returns how long until some waiting player's rating window next takes in another
+     * bucket, i.e. the earliest time a party that cannot form now might form by waiting.
+     * @return Nanoseconds from now (0 if due already), or Long.MAX_VALUE if no window can
+     *         widen any further.
+     */
+    public synchronized long nanosUntilWider() {
+        if (widenPerSecond <= 0) return Long.MAX_VALUE;
+        long now = System.nanoTime();
+        long soonest = Long.MAX_VALUE;
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int b = 0; b < bucketCount; b++) {
+                if (stamps[r][b] == null || stamps[r][b].size() == 0) continue;
+                int rating = (int) players[r][b].peek();
+                int tolerance = tolerance(now - stamps[r][b].peek());
+                if (tolerance >= maxTolerance) continue;
+                // Tolerance at which the window reaches the next bucket below or above.
+                int low = bucketOf(Math.max(0, rating - tolerance));
+                int high = bucketOf(Math.min(MAX_RATING - 1, rating + tolerance));
+                long next = maxTolerance;
+                if (low > 0) next = Math.min(next, rating - low * bucketWidth + 1);
+                if (high < bucketCount - 1) next = Math.min(next, (high + 1) * bucketWidth - rating);
+                long waitedAt = (long) Math.ceil((next - baseTolerance) / widenPerSecond * 1e9);
+                soonest = Math.min(soonest, Math.max(0, waitedAt - (now - stamps[r][b].peek())));
+            }
+        }
+        return soonest;
+    }
+
+    /**
+     * Forms up to maxParties parties into a batch while holding the queue lock once,
+     * each around the oldest anchor that can be matched.
+     * @param batch Receives the parties.
+     * @param maxParties Maximum number of parties to form (also limited by the batch's room).
+     * @return The number of parties added.
+     */
+    public synchronized int takeParties(PartyBatch batch, int maxParties) {
+        int taken = 0;
+        long now = System.nanoTime();
+        while (taken < maxParties && batch.remaining() > 0 && findAnchor(now, false)) {
+            takeParty(batch, now);
+            taken++;
+        }
+        return taken;
+    }
+
+    /**
+     * Returns a formatted string with counts of leftover players.
+     * @return A string listing the number of leftover Tanks, Healers, and DPS.
+     */
+    public synchronized String getLeftoverPlayers() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Leftover Tanks: ").append(roleCounts[0]).append("\n");
+        sb.append("Leftover Healers: ").append(roleCounts[1]).append("\n");
+        sb.append("Leftover DPS: ").append(roleCounts[2]).append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * Looks for the oldest bucket head whose rating window can fill a party and
+     * remembers it (and the window) for {@link #takeParty}.
+     * @param fullTolerance True to use the maximum tolerance instead of the wait-based one.
+     * @return True if an anchor was found.
+     */
+    private boolean findAnchor(long now, boolean fullTolerance) {
+        for (int r = 0; r < ROLES.length; r++) {
+            if (roleCounts[r] < PARTY_NEEDS[r]) return false;
+        }
+
+        // Bucket heads ordered by age: (enqueue time relative to the oldest) << 10 | candidate index.
+        int n = 0;
+        long oldest = Long.MAX_VALUE;
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int b = 0; b < bucketCount; b++) {
+                if (stamps[r][b] != null && stamps[r][b].size() > 0) {
+                    oldest = Math.min(oldest, stamps[r][b].peek());
+                }
+            }
+        }
+        for (int r = 0; r < ROLES.length; r++) {
+            for (int b = 0; b < bucketCount; b++) {
+                if (stamps[r][b] != null && stamps[r][b].size() > 0) {
+                    candidates[n++] = ((stamps[r][b].peek() - oldest) << 10) | (r * bucketCount + b);
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, n);
+
+        for (int i = 0; i < n; i++) {
+            int index = (int) (candidates[i] & 1023);
+            int r = index / bucketCount;
+            int b = index % bucketCount;
+            int rating = (int) players[r][b].peek();
+            int tolerance = fullTolerance ? maxTolerance : tolerance(now - stamps[r][b].peek());
+            int low = bucketOf(Math.max(0, rating - tolerance));
+            int high = bucketOf(Math.min(MAX_RATING - 1, rating + tolerance));
+            boolean enough = true;
+            for (int role = 0; role < ROLES.length && enough; role++) {
+                enough = rangeCount(role, low, high) >= PARTY_NEEDS[role];
+            }
+            if (enough) {
+                anchorRole = r;
+                anchorBucket = b;
+                windowLow = low;
+                windowHigh = high;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes the anchor and the nearest-rated players of each role inside the window found
+     * by {@link #findAnchor} into a new batch row, recording how long each waited.
+     */
+    private void takeParty(PartyBatch batch, long now) {
+        int party = batch.addParty();
+        // The anchor is the head of its bucket, which is searched first, so it is always taken.
+        for (int k = 0; k < ROLES.length; k++) {
+            int r = (anchorRole + k) % ROLES.length;
+            int need = PARTY_NEEDS[r];
+            int slot = r; // Tank 0, Healer 1, DPS 2..4
+            for (int step = 0; need > 0; step++) {
+                // Nearest buckets first: anchor, anchor-1, anchor+1, anchor-2, ...
+                int b = anchorBucket + ((step & 1) == 0 ? step / 2 : -(step + 1) / 2);
+                if (b < windowLow || b > windowHigh) continue;
+                LongQueue queue = players[r][b];
+                while (need > 0 && queue != null && queue.size() > 0) {
+                    long waited = now - stamps[r][b].poll();
+                    if (metrics != null) {
+                        metrics.recordQueueWait(r, waited);
+                    }
+                    batch.setPlayer(party, slot++, (int) (queue.poll() >>> 32));
+                    addCount(r, b, -1);
+                    roleCounts[r]--;
+                    need--;
+                }
+            }
+        }
+    }
+
+    private int tolerance(long waitedNanos) {
+        double widened = baseTolerance + widenPerSecond * (waitedNanos / 1e9);
+        return (int) Math.min(maxTolerance, widened);
+    }
+
+    private int bucketOf(int rating) {
+        return rating / bucketWidth;
+    }
+
+    private void addCount(int role, int bucket, int delta) {
+        int[] tree = counts[role];
+        for (int i = bucket + 1; i <= bucketCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private int rangeCount(int role, int low, int high) {
+        return prefixCount(role, high) - prefixCount(role, low - 1);
+    }
+
+    private int prefixCount(int role, int bucket) {
+        int[] tree = counts[role];
+        int sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,327 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps the rankings behind the top-N status views up to date from the dungeons that
+ * changed since the last frame ({@link DungeonStatus#drainChanges}), so a frame costs
+ * O(changes + N log N) rather than a scan of the pool.
+ * <p>
+ * Active and empty dungeons are each kept in a doubly linked list (arrays indexed by
+ * dungeon ID) ordered by when they entered that state. A dungeon changing state goes to
+ * the tail, so the longest-running and longest-idle dungeons are the heads of the lists.
+ * The busiest dungeons are a min-heap of the N highest party counts. Counts only grow, so
+ * a dungeon outside the heap can only get in through a change of its own. Only when a
+ * dungeon leaves a full heap (retired, or its counters restored lower) is the pool
+ * scanned again.
+ */
+public class StatusRankings {
+    private static final int NONE = 0;
+    private static final int ACTIVE = 1;
+    private static final int IDLE = 2;
+
+    private final DungeonStatus status;
+    private final int topN;
+    private final DungeonStatus.Snapshot snapshot = new DungeonStatus.Snapshot();
+    private final IntConsumer update = this::update;
+    private final IntConsumer ignore = id -> { };
+
+    // By dungeon ID: which list the dungeon is in, its neighbours there (0 = none), the
+    // state time it is ordered by, and its position + 1 in the busiest heap (0 = outside).
+    private byte[] list = new byte[0];
+    private int[] prev = new int[0];
+    private int[] next = new int[0];
+    private long[] since = new long[0];
+    private int[] heapIndex = new int[0];
+    private final int[] heads = new int[3];
+    private final int[] tails = new int[3];
+
+    // Min-heap of the busiest dungeons, keyed by parties served.
+    private final int[] heapIDs;
+    private final long[] heapKeys;
+    private int heapSize = 0;
+    private boolean rebuild = true;
+
+    // Scratch space for ordering the busiest heap on a frame.
+    private final int[] sortIDs;
+    private final long[] sortKeys;
+
+    /**
+     * Constructs StatusRankings. The first {@link #refresh} reads the whole pool once.
+     * @param status The status to rank.
+     * @param topN Number of dungeons each ranking returns.
+     */
+    public StatusRankings(DungeonStatus status, int topN) {
+        this.status = status;
+        this.topN = Math.max(1, topN);
+        heapIDs = new int[this.topN];
+        heapKeys = new long[this.topN];
+        sortIDs = new int[this.topN];
+        sortKeys = new long[this.topN];
+    }
+
+    /**
+     * Applies the changes since the previous call.
+     */
+    public void refresh() {
+        if (rebuild) {
+            rebuild();
+        } else {
+            status.drainChanges(update);
+            if (rebuild) rebuild();
+        }
+    }
+
+    /**
+     * Copies the active dungeons that have been running the longest, longest first.
+     * @param out Receives the dungeon IDs.
+     * @return Number of IDs written (at most N).
+     */
+    public int longestRunning(int[] out) {
+        return fromList(ACTIVE, out);
+    }
+
+    /**
+     * Copies the empty dungeons that have been idle the longest, longest first.
+     * @param out Receives the dungeon IDs.
+     * @return Number of IDs written (at most N).
+     */
+    public int longestIdle(int[] out) {
+        return fromList(IDLE, out);
+    }
+
+    /**
+     * Copies the dungeons that have served the most parties, most first.
+     * @param out Receives the dungeon IDs.
+     * @return Number of IDs written (at most N).
+     */
+    public int busiest(int[] out) {
+        // Pop a copy of the heap from smallest to largest into out back to front.
+        int size = heapSize;
+        System.arraycopy(heapIDs, 0, sortIDs, 0, size);
+        System.arraycopy(heapKeys, 0, sortKeys, 0, size);
+        for (int i = size - 1; i >= 0; i--) {
+            out[i] = sortIDs[0];
+            int last = i;
+            sortIDs[0] = sortIDs[last];
+            sortKeys[0] = sortKeys[last];
+            int at = 0;
+            while (true) {
+                int left = 2 * at + 1;
+                if (left >= last) break;
+                int smallest = left + 1 < last && sortKeys[left + 1] < sortKeys[left] ? left + 1 : left;
+                if (sortKeys[at] <= sortKeys[smallest]) break;
+                int id = sortIDs[at];
+                sortIDs[at] = sortIDs[smallest];
+                sortIDs[smallest] = id;
+                long key = sortKeys[at];
+                sortKeys[at] = sortKeys[smallest];
+                sortKeys[smallest] = key;
+                at = smallest;
+            }
+        }
+        return size;
+    }
+
+    private int fromList(int which, int[] out) {
+        int count = 0;
+        for (int id = heads[which]; id != 0 && count < topN; id = next[id]) {
+            out[count++] = id;
+        }
+        return count;
+    }
+
+    /**
+     * Moves one changed dungeon to its place in the lists and the busiest heap.
+     */
+    private void update(int id) {
+        ensureCapacity(id);
+        boolean known = status.read(id, snapshot);
+        int wanted = !known ? NONE : snapshot.active ? ACTIVE : IDLE;
+        if (wanted != list[id] || (wanted != NONE && since[id] != snapshot.stateSince)) {
+            unlink(id);
+            if (wanted != NONE) insert(wanted, id, snapshot.stateSince);
+        }
+
+        int position = heapIndex[id] - 1;
+        long served = snapshot.partiesServed;
+        if (position >= 0) {
+            if (!known || served < heapKeys[position]) {
+                // A dungeon outside a full heap may now belong in it.
+                if (heapSize == topN) rebuild = true;
+                removeAt(position);
+                if (known) push(id, served);
+            } else {
+                heapKeys[position] = served;
+                siftDown(position);
+            }
+        } else if (known) {
+            if (heapSize < topN) {
+                push(id, served);
+            } else if (served > heapKeys[0]) {
+                heapIndex[heapIDs[0]] = 0;
+                heapIDs[0] = id;
+                heapKeys[0] = served;
+                heapIndex[id] = 1;
+                siftDown(0);
+            }
+        }
+    }
+
+    /**
+     * Reads the whole pool: on the first frame, and when the busiest heap may have lost a
+     * dungeon it cannot replace from the changes alone.
+     */
+    private void rebuild() {
+        rebuild = false;
+        // Changes made from here on are marked again and applied on the next refresh.
+        status.drainChanges(ignore);
+        Arrays.fill(list, (byte) NONE);
+        Arrays.fill(heapIndex, 0);
+        Arrays.fill(heads, 0);
+        Arrays.fill(tails, 0);
+        heapSize = 0;
+
+        int highest = status.getHighestDungeonID();
+        ensureCapacity(highest);
+        int active = 0, idle = 0;
+        long oldest = Long.MAX_VALUE;
+        for (int id = 1; id <= highest; id++) {
+            if (!status.read(id, snapshot)) continue;
+            list[id] = (byte) (snapshot.active ? ACTIVE : IDLE);
+            since[id] = snapshot.stateSince;
+            oldest = Math.min(oldest, snapshot.stateSince);
+            if (snapshot.active) active++; else idle++;
+            if (heapSize < topN) {
+                push(id, snapshot.partiesServed);
+            } else if (snapshot.partiesServed > heapKeys[0]) {
+                heapIndex[heapIDs[0]] = 0;
+                heapIDs[0] = id;
+                heapKeys[0] = snapshot.partiesServed;
+                heapIndex[id] = 1;
+                siftDown(0);
+            }
+        }
+
+        // Order each list by state time: (time since the oldest) << 31 | dungeon ID.
+        long[] activeOrder = new long[active];
+        long[] idleOrder = new long[idle];
+        active = 0;
+        idle = 0;
+        for (int id = 1; id <= highest; id++) {
+            if (list[id] == NONE) continue;
+            long key = (Math.min(since[id] - oldest, (1L << 32) - 1) << 31) | id;
+            if (list[id] == ACTIVE) activeOrder[active++] = key; else idleOrder[idle++] = key;
+        }
+        Arrays.sort(activeOrder);
+        Arrays.sort(idleOrder);
+        for (long key : activeOrder) {
+            append(ACTIVE, (int) (key & Integer.MAX_VALUE));
+        }
+        for (long key : idleOrder) {
+            append(IDLE, (int) (key & Integer.MAX_VALUE));
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < list.length) return;
+        int length = Math.max(id + 1, 2 * list.length);
+        list = Arrays.copyOf(list, length);
+        prev = Arrays.copyOf(prev, length);
+        next = Arrays.copyOf(next, length);
+        since = Arrays.copyOf(since, length);
+        heapIndex = Arrays.copyOf(heapIndex, length);
+    }
+
+    /**
+     * Inserts a dungeon into a list behind every dungeon that entered the state earlier.
+     * Changes arrive roughly in time order, so the walk back from the tail is short.
+     */
+    private void insert(int which, int id, long stateSince) {
+        list[id] = (byte) which;
+        since[id] = stateSince;
+        int after = tails[which];
+        while (after != 0 && since[after] > stateSince) {
+            after = prev[after];
+        }
+        int before = after == 0 ? heads[which] : next[after];
+        prev[id] = after;
+        next[id] = before;
+        if (after == 0) heads[which] = id; else next[after] = id;
+        if (before == 0) tails[which] = id; else prev[before] = id;
+    }
+
+    private void append(int which, int id) {
+        int tail = tails[which];
+        prev[id] = tail;
+        next[id] = 0;
+        if (tail == 0) heads[which] = id; else next[tail] = id;
+        tails[which] = id;
+    }
+
+    private void unlink(int id) {
+        int which = list[id];
+        if (which == NONE) return;
+        int before = prev[id];
+        int after = next[id];
+        if (before == 0) heads[which] = after; else next[before] = after;
+        if (after == 0) tails[which] = before; else prev[after] = before;
+        list[id] = NONE;
+        prev[id] = 0;
+        next[id] = 0;
+    }
+
+    private void push(int id, long key) {
+        int position = heapSize++;
+        heapIDs[position] = id;
+        heapKeys[position] = key;
+        heapIndex[id] = position + 1;
+        siftUp(position);
+    }
+
+    private void removeAt(int position) {
+        heapIndex[heapIDs[position]] = 0;
+        int last = --heapSize;
+        if (position == last) return;
+        heapIDs[position] = heapIDs[last];
+        heapKeys[position] = heapKeys[last];
+        int moved = heapIDs[position];
+        heapIndex[moved] = position + 1;
+        siftUp(position);
+        siftDown(heapIndex[moved] - 1);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= heapKeys[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) break;
+            int smallest = left + 1 < heapSize && heapKeys[left + 1] < heapKeys[left] ? left + 1 : left;
+            if (heapKeys[i] <= heapKeys[smallest]) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = heapIDs[a];
+        heapIDs[a] = heapIDs[b];
+        heapIDs[b] = id;
+        long key = heapKeys[a];
+        heapKeys[a] = heapKeys[b];
+        heapKeys[b] = key;
+        heapIndex[heapIDs[a]] = a + 1;
+        heapIndex[heapIDs[b]] = b + 1;
+    }
+}
@@ -0,0 +1,319 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders the live status display for DungeonStatus.
+ * Only a bounded set of rows is shown (one page, or the top N of a view), rows whose
+ * values have not changed reuse their cached text, and only lines that differ from
+ * the previous frame are rewritten on the terminal. Formatting and terminal output
+ * therefore stay bounded no matter how many dungeons the pool has. The SUMMARY and PAGE
+ * views read only a bounded set of dungeons, and the top-N views come from
+ * {@link StatusRankings}, which applies just the dungeons changed since the last frame.
+ */
+public class StatusRenderer {
+    // Define a fixed width for the header display.
+    private static final int WIDTH = 120;
+    private static final String LINE = "=".repeat(WIDTH);
+    private static final String HEADER = String.format("%-20s | %-10s | %-15s | %-20s | %-20s | %-15s",
+            "Dungeon Name", "Dungeon ID", "Party Served", "Total Time Served", "Party Inside", "Status");
+
+    /**
+     * What the dungeon table shows.
+     */
+    public enum View {
+        /** Pool-wide totals only. */
+        SUMMARY,
+        /** All dungeons, one page at a time. */
+        PAGE,
+        /** Top N dungeons by parties served. */
+        BUSIEST,
+        /** Top N active dungeons by time since the current party entered. */
+        LONGEST,
+        /** Top N empty dungeons by time since they became empty. */
+        IDLE;
+
+        /**
+         * Parses a view name (case-insensitive).
+         * @param name The view name.
+         * @return The matching View.
+         * @throws IllegalArgumentException if the name does not match any view.
+         */
+        public static View fromString(String name) {
+            for (View view : values()) {
+                if (view.name().equalsIgnoreCase(name.trim())) return view;
+            }
+            throw new IllegalArgumentException("Unknown status view: " + name);
+        }
+    }
+
+    private final DungeonStatus status;
+    private volatile View view;
+    private volatile int page;
+    private final int pageSize;
+    private final int topN;
+
+    // Per visible row: the values last formatted and the resulting text.
+    private final int[] cachedIDs;
+    private final int[] cachedServed;
+    private final long[] cachedTime;
+    private final int[] cachedParty;
+    private final boolean[] cachedActive;
+    private final long[] cachedAge;
+    private final String[] cachedRows;
+
+    private final StatusRankings rankings;
+    private final int[] visibleIDs;
+    private final DungeonStatus.Snapshot snapshot = new DungeonStatus.Snapshot();
+
+    private final List<String> frame = new ArrayList<>();
+    private final RunHistory.Runs recent = new RunHistory.Runs(DungeonStatus.RECENT_RUNS);
+    private String[] previousFrame = new String[0];
+    private final StringBuilder out = new StringBuilder(16 * 1024);
+
+    /**
+     * Constructs a StatusRenderer configured from system properties:
+     * lfg.view (summary|page|busiest|longest|idle), lfg.page, lfg.pageSize and lfg.topN.
+     * @param status The status to render.
+     * @return The renderer.
+     */
+    public static StatusRenderer fromSystemProperties(DungeonStatus status) {
+        StatusRenderer renderer = new StatusRenderer(status,
+                View.fromString(System.getProperty("lfg.view", "page")),
+                Integer.getInteger("lfg.pageSize", 50),
+                Integer.getInteger("lfg.topN", 10));
+        renderer.setPage(Integer.getInteger("lfg.page", 1) - 1);
+        return renderer;
+    }
+
+    /**
+     * Constructs a StatusRenderer.
+     * @param status The status to render.
+     * @param view The initial view.
+     * @param pageSize Rows per page in the PAGE view.
+     * @param topN Rows shown in the top-N views.
+     */
+    public StatusRenderer(DungeonStatus status, View view, int pageSize, int topN) {
+        this.status = status;
+        this.view = view;
+        this.pageSize = Math.max(1, pageSize);
+        this.topN = Math.max(1, topN);
+        int rows = Math.max(this.pageSize, this.topN);
+        cachedIDs = new int[rows];
+        cachedServed = new int[rows];
+        cachedTime = new long[rows];
+        cachedParty = new int[rows];
+        cachedActive = new boolean[rows];
+        cachedAge = new long[rows];
+        cachedRows = new String[rows];
+        rankings = new StatusRankings(status, this.topN);
+        visibleIDs = new int[rows];
+    }
+
+    /**
+     * Switches the view shown on the next frame.
+     * @param view The view to show.
+     */
+    public void setView(View view) {
+        this.view = view;
+    }
+
+    /**
+     * Selects the page shown by the PAGE view (0-based; clamped on render).
+     * @param page The page index.
+     */
+    public void setPage(int page) {
+        this.page = Math.max(0, page);
+    }
+
+    /**
+     * Draws the next frame, rewriting only the lines that changed since the last one.
+     * @param ps The terminal stream.
+     */
+    public synchronized void render(PrintStream ps) {
+        buildFrame();
+        out.setLength(0);
+        if (previousFrame.length == 0) {
+            out.append("\033[H\033[2J");
+        }
+        for (int i = 0; i < frame.size(); i++) {
+            String line = frame.get(i);
+            if (i < previousFrame.length && line.equals(previousFrame[i])) continue;
+            // Move to row i+1, write the line and clear whatever was left of the old one.
+            out.append("\033[").append(i + 1).append(";1H").append(line).append("\033[K");
+        }
+        if (frame.size() < previousFrame.length) {
+            out.append("\033[").append(frame.size() + 1).append(";1H\033[J");
+        }
+        out.append("\033[").append(frame.size() + 1).append(";1H");
+        ps.print(out);
+        ps.flush();
+        previousFrame = frame.toArray(new String[0]);
+    }
+
+    /**
+     * Prints one complete frame without cursor control (for logs and final reports).
+     * @param ps The output stream.
+     */
+    public synchronized void renderFull(PrintStream ps) {
+        buildFrame();
+        out.setLength(0);
+        for (String line : frame) {
+            out.append(line).append(System.lineSeparator());
+        }
+        ps.print(out);
+        ps.flush();
+    }
+
+    /**
+     * Builds the lines of the next frame into {@link #frame}.
+     */
+    private void buildFrame() {
+        frame.clear();
+        View current = view;
+        long now = System.currentTimeMillis();
+        // Kept up to date on every frame, so switching to a top-N view needs no catching up.
+        rankings.refresh();
+
+        frame.add(LINE);
+        frame.add(centerString(WIDTH, "DUNGEON STATUS"));
+        frame.add(LINE);
+        int known = status.getKnownDungeonCount();
+        int active = status.getActiveDungeonCount();
+        frame.add(String.format("Dungeons: %d | Active: %d | Empty: %d | Utilization: %.1f%% | "
+                        + "Parties Served: %d | Total Time Served: %d",
+                known, active, known - active, known == 0 ? 0.0 : 100.0 * active / known,
+                status.getAllPartiesServed(), status.getAllTimeServed()));
+
+        if (current != View.SUMMARY) {
+            int rows = current == View.PAGE ? selectPage() : selectTop(current);
+            frame.add(viewTitle(current, rows));
+            frame.add(LINE);
+            frame.add(HEADER);
+            frame.add(LINE);
+            if (rows == 0) {
+                frame.add("No Dungeon Data Available");
+            }
+            for (int i = 0; i < rows; i++) {
+                frame.add(row(i, visibleIDs[i], current, now));
+            }
+        }
+        frame.add(LINE);
+        frame.add("");
+
+        frame.add(LINE);
+        frame.add(centerString(WIDTH, "PARTY STATUS (Recent " + DungeonStatus.RECENT_RUNS + ")"));
+        frame.add(LINE);
+        RunHistory history = status.getHistory();
+        if (history.recent(DungeonStatus.RECENT_RUNS, recent) == 0) {
+            frame.add("No Party Data Available");
+        } else {
+            for (int i = 0; i < recent.size(); i++) {
+                frame.add(status.formatRun(recent.partyIDs[i], recent.dungeonIDs[i], recent.durations[i]));
+            }
+            frame.add(String.format("Last %d runs: Clear Time mean %.1f / p95 %d seconds",
+                    history.size(), history.meanClearTime(0), history.clearTimePercentile(0, 95)));
+        }
+        frame.add(LINE);
+        frame.add("");
+
+        frame.add(LINE);
+        frame.add(centerString(WIDTH, "LEFTOVER PLAYERS"));
+        frame.add(LINE);
+        frame.addAll(Arrays.asList(status.getLeftoverInfo().split("\n", -1)));
+        frame.add(LINE);
+    }
+
+    /**
+     * @return A one-line description of the current view.
+     */
+    private String viewTitle(View current, int rows) {
+        if (current == View.PAGE) {
+            int pages = Math.max(1, (status.getHighestDungeonID() + pageSize - 1) / pageSize);
+            return String.format("View: PAGE %d/%d (%d rows)", Math.min(page, pages - 1) + 1, pages, rows);
+        }
+        return String.format("View: %s (top %d)", current, rows);
+    }
+
+    /**
+     * Fills visibleIDs with the known dungeons on the current page.
+     * @return Number of rows.
+     */
+    private int selectPage() {
+        int highest = status.getHighestDungeonID();
+        int pages = Math.max(1, (highest + pageSize - 1) / pageSize);
+        int first = Math.min(page, pages - 1) * pageSize + 1;
+        int rows = 0;
+        for (int id = first; id < first + pageSize && id <= highest; id++) {
+            if (status.isKnown(id)) {
+                visibleIDs[rows++] = id;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Fills visibleIDs with the top N dungeons for a ranking view, highest first.
+     * @return Number of rows.
+     */
+    private int selectTop(View current) {
+        switch (current) {
+            case BUSIEST:
+                return rankings.busiest(visibleIDs);
+            case LONGEST:
+                return rankings.longestRunning(visibleIDs);
+            default:
+                return rankings.longestIdle(visibleIDs);
+        }
+    }
+
+    /**
+     * Returns the text for a visible row, reformatting it only if its values changed.
+     * The row's values come from one consistent read of the dungeon.
+     */
+    private String row(int index, int dungeonID, View current, long now) {
+        status.read(dungeonID, snapshot);
+        int served = snapshot.partiesServed;
+        long time = snapshot.totalTimeServed;
+        int party = snapshot.partyInside;
+        boolean active = snapshot.active;
+        long age = current == View.LONGEST || current == View.IDLE
+                ? (now - snapshot.stateSince) / 1000 : -1;
+        if (cachedRows[index] != null && cachedIDs[index] == dungeonID && cachedServed[index] == served
+                && cachedTime[index] == time && cachedParty[index] == party
+                && cachedActive[index] == active && cachedAge[index] == age) {
+            return cachedRows[index];
+        }
+        String text = String.format("%-20s | %-10d | %-15d | %-20d | %-20s | %-15s",
+                status.getDungeonName(dungeonID), dungeonID, served, time,
+                party == 0 ? "None" : "Party " + party, active ? "Active" : "Empty");
+        if (age >= 0) {
+            text += " | for " + age + "s";
+        }
+        cachedIDs[index] = dungeonID;
+        cachedServed[index] = served;
+        cachedTime[index] = time;
+        cachedParty[index] = party;
+        cachedActive[index] = active;
+        cachedAge[index] = age;
+        cachedRows[index] = text;
+        return text;
+    }
+
+    /**
+     * Helper method to center a string within a specified width.
+     * @param width The total width.
+     * @param s The string to center.
+     * @return The centered string.
+     */
+    private static String centerString(int width, String s) {
+        if (s.length() >= width) return s;
+        int leftPadding = (width - s.length()) / 2;
+        return " ".repeat(leftPadding) + s;
+    }
+}
@@ -1,5 +1,7 @@
 // Programmed by: Jasper Adrada
 
+package lfgs;
+
 import java.util.Scanner;
 
 /**
@@ -15,13 +17,23 @@ public class UserInput {
     private static int numDungeons;
     private static int minTime;
     private static int maxTime;
+    private static Scanner scanner;
 
     /**
      * Prompts the user for input and adds players to the queue.
-     * @param queue The QueueManager instance.
+     * @param queue The queue that receives the players.
+     */
+    public static void collectPlayerData(PlayerQueue queue) {
+        collectDungeonSettings();
+        collectPlayers(queue);
+    }
+
+    /**
+     * Prompts the user for the dungeon settings only.
+     * Call {@link #collectPlayers(PlayerQueue)} afterwards for the player counts.
      */
-    public static void collectPlayerData(QueueManager queue) {
-        Scanner scanner = new Scanner(System.in);
+    public static void collectDungeonSettings() {
+        scanner = new Scanner(System.in);
 
         numDungeons = getValidNumber(scanner, "Enter number of Dungeon Instances: ", MAX_DUNGEONS);
         minTime = getValidNumber(scanner, "Enter minimum dungeon completion time: ", MAX_TIME);
@@ -31,7 +43,13 @@ public class UserInput {
             System.out.println("Invalid! Maximum time must be greater than or equal to minimum time.");
             maxTime = getValidNumber(scanner, "Enter maximum dungeon completion time (<= 15): ", MAX_TIME);
         }
+    }
 
+    /**
+     * Prompts the user for player counts and adds the players to the queue.
+     * @param queue The queue that receives the players.
+     */
+    public static void collectPlayers(PlayerQueue queue) {
         int numTanks = getValidNumber(scanner, "Enter number of Tanks: ", MAX_TANKS);
         int numHealers = getValidNumber(scanner, "Enter number of Healers: ", MAX_HEALERS);
         int numDPS = getValidNumber(scanner, "Enter number of DPS (must be at least 3 for a party): ", MAX_DPS);
@@ -41,14 +59,15 @@ public class UserInput {
             numDPS = getValidNumber(scanner, "Enter number of DPS (must be at least 3 for a party): ", MAX_DPS);
         }
 
+        int rejected = 0;
         for (int i = 1; i <= numTanks; i++) {
-            queue.addPlayer("Tank", i);
+            if (!queue.addPlayer("Tank", i)) rejected++;
         }
         for (int i = 1; i <= numHealers; i++) {
-            queue.addPlayer("Healer", i);
+            if (!queue.addPlayer("Healer", i)) rejected++;
         }
         for (int i = 1; i <= numDPS; i++) {
-            queue.addPlayer("DPS", i);
+            if (!queue.addPlayer("DPS", i)) rejected++;
         }
 
         System.out.println("\n Players and dungeon settings have been added!");
@@ -57,6 +76,9 @@ public class UserInput {
         System.out.println("Tanks: " + numTanks);
         System.out.println("Healers: " + numHealers);
         System.out.println("DPS: " + numDPS);
+        if (rejected > 0) {
+            System.out.println("Queue full: " + rejected + " players were not queued.");
+        }
 
         scanner.close();
     }
@@ -0,0 +1,162 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class DungeonIdAllocatorTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void noIdIsHandedOutTwiceUnderContention() throws Exception {
+        for (PlacementPolicy placement : PlacementPolicy.values()) {
+            // Starts empty, so the threads also race the growth on demand.
+            DungeonIdAllocator allocator = new DungeonIdAllocator(256, 0, placement);
+            AtomicIntegerArray inUse = new AtomicIntegerArray(allocator.capacity() + 1);
+            runConcurrently(() -> {
+                int[] held = new int[4];
+                for (int i = 0; i < 20_000; i++) {
+                    int count = allocator.acquireUpTo(held, held.length);
+                    for (int k = 0; k < count; k++) {
+                        assertTrue(inUse.compareAndSet(held[k], 0, 1),
+                                placement + ": dungeon " + held[k] + " handed out twice");
+                    }
+                    for (int k = 0; k < count; k++) {
+                        inUse.set(held[k], 0);
+                        allocator.release(held[k], 1);
+                    }
+                }
+            }, null);
+            assertFullAndFree(allocator);
+        }
+    }
+
+    @Test
+    void idsAreNotLostAcrossGrowAndShrink() {
+        DungeonIdAllocator allocator = new DungeonIdAllocator(200_000, 10);
+        List<Integer> held = new ArrayList<>();
+        // Grows on demand past the first chunk of the bitmap.
+        for (int i = 0; i < 70_000; i++) {
+            held.add(allocator.tryAcquire());
+        }
+        assertEquals(70_000, distinct(held));
+        // Only the free IDs above the highest one in use can be retired.
+        assertEquals(70_000, allocator.shrink(1));
+        for (int i = held.size() - 1; i >= 35_000; i--) {
+            allocator.release(held.remove(i));
+        }
+        int shrunk = allocator.shrink(1);
+        assertEquals(35_000, shrunk);
+        assertEquals(0, allocator.available());
+        assertFalse(allocator.tryAcquire(35_001));
+        allocator.ensureSize(100_000);
+        assertEquals(65_000, allocator.available());
+        for (int id : held) {
+            allocator.release(id);
+        }
+        assertFullAndFree(allocator);
+    }
+
+    @Test
+    void idsAreNotLostWhileThePoolResizesUnderContention() throws Exception {
+        DungeonIdAllocator allocator = new DungeonIdAllocator(150_000, 64);
+        AtomicIntegerArray inUse = new AtomicIntegerArray(allocator.capacity() + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread resizer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (!done.get()) {
+                if (random.nextBoolean()) {
+                    allocator.shrink(random.nextInt(1, 1024));
+                } else {
+                    allocator.ensureSize(random.nextInt(1, allocator.capacity() + 1));
+                }
+            }
+        });
+        runConcurrently(() -> {
+            int[] held = new int[64];
+            for (int i = 0; i < 5_000; i++) {
+                int count = allocator.acquireUpTo(held, held.length);
+                for (int k = 0; k < count; k++) {
+                    assertTrue(inUse.compareAndSet(held[k], 0, 1), "dungeon " + held[k] + " handed out twice");
+                }
+                for (int k = 0; k < count; k++) {
+                    inUse.set(held[k], 0);
+                    allocator.release(held[k]);
+                }
+            }
+        }, resizer);
+        done.set(true);
+        resizer.join();
+        assertFullAndFree(allocator);
+    }
+
+    /**
+     * Runs the task on every worker thread at once (plus an optional background thread)
+     * and rethrows the first failure.
+     */
+    private static void runConcurrently(Task task, Thread background) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        if (background != null) background.start();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() instanceof Exception) throw (Exception) failure.get();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+    }
+
+    /**
+     * Checks that every ID of the pool is free, by taking them all: each of 1..size must
+     * come back exactly once, and then none is left.
+     */
+    private static void assertFullAndFree(DungeonIdAllocator allocator) {
+        int size = allocator.size();
+        assertEquals(size, allocator.available());
+        assertTrue(allocator.allFree());
+        boolean[] seen = new boolean[size + 1];
+        for (int i = 0; i < size; i++) {
+            int id = allocator.tryAcquire();
+            assertTrue(id >= 1 && id <= size, "dungeon " + id + " is outside the pool");
+            assertFalse(seen[id], "dungeon " + id + " handed out twice");
+            seen[id] = true;
+        }
+        if (size == allocator.capacity()) {
+            assertEquals(0, allocator.tryAcquire());
+        }
+        assertEquals(0, allocator.available());
+    }
+
+    private static int distinct(List<Integer> ids) {
+        return (int) ids.stream().distinct().count();
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,72 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class DungeonNameGeneratorTest {
+
+    private static final long FIVE_SYLLABLES = 90L * 90 * 90 * 90 * 90;
+
+    @Test
+    void namesAreDistinctAcrossTheFullThreeSyllableSpace() {
+        for (long seed = 0; seed < 4; seed++) {
+            assertDistinct(new DungeonNameGenerator(729_000, seed));
+        }
+    }
+
+    @Test
+    void namesAreDistinctInPartialSpaces() {
+        for (int capacity : new int[]{1, 10, 1000, 100_000, 729_001}) {
+            assertDistinct(new DungeonNameGenerator(capacity, capacity));
+        }
+    }
+
+    @Test
+    void codesAreDistinctInTheFiveSyllableSpace() {
+        // A pool this large spans 90^5 codes, where x * multiplier no longer fits in 64 bits.
+        DungeonNameGenerator generator = new DungeonNameGenerator(70_000_000, 8);
+        assertEquals(5, generator.getSyllableCount());
+        int count = 2_000_000;
+        long[] codes = new long[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = generator.codeOf(i + 1);
+            assertTrue(codes[i] >= 0 && codes[i] < FIVE_SYLLABLES);
+        }
+        Arrays.sort(codes);
+        for (int i = 1; i < count; i++) {
+            assertTrue(codes[i] != codes[i - 1], "Duplicate code " + codes[i]);
+        }
+    }
+
+    @Test
+    void permuteIsExactNearTheTopOfTheSpace() {
+        BigInteger space = BigInteger.valueOf(FIVE_SYLLABLES);
+        Random random = new Random(8);
+        for (int i = 0; i < 100_000; i++) {
+            long x = FIVE_SYLLABLES - 1 - Math.floorMod(random.nextLong(), 1L << 20);
+            long multiplier = Math.floorMod(random.nextLong(), FIVE_SYLLABLES);
+            long offset = Math.floorMod(random.nextLong(), FIVE_SYLLABLES);
+            long expected = BigInteger.valueOf(x).multiply(BigInteger.valueOf(multiplier))
+                    .add(BigInteger.valueOf(offset)).mod(space).longValueExact();
+            assertEquals(expected, DungeonNameGenerator.permute(x, multiplier, offset, FIVE_SYLLABLES));
+        }
+    }
+
+    private static void assertDistinct(DungeonNameGenerator generator) {
+        Set<String> names = new HashSet<>();
+        for (int i = 1; i <= generator.getCapacity(); i++) {
+            String name = generator.nameOf(i);
+            assertEquals(2 * generator.getSyllableCount(), name.length());
+            assertTrue(names.add(name), "Duplicate name " + name);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class DungeonStatusTest {
+
+    @Test
+    void snapshotsNeverShowARunHalfStartedOrHalfFinished() throws Exception {
+        DungeonStatus status = new DungeonStatus(4, false);
+        status.addDungeons(1, 4);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            DungeonStatus.Snapshot snapshot = new DungeonStatus.Snapshot();
+            try {
+                while (!done.get()) {
+                    assertTrue(status.read(2, snapshot));
+                    // Every run takes 1 second, so the time served trails the parties served
+                    // by exactly the run in progress.
+                    assertEquals(snapshot.active, snapshot.partyInside != 0);
+                    assertEquals(snapshot.partiesServed - (snapshot.active ? 1 : 0), snapshot.totalTimeServed);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        for (int party = 1; party <= 200_000 && failure.get() == null; party++) {
+            status.startRun(2, party);
+            status.finishRun(2, 1);
+        }
+        done.set(true);
+        reader.join();
+        if (failure.get() != null) throw new AssertionError(failure.get());
+    }
+
+    @Test
+    void readReportsUnknownDungeons() {
+        DungeonStatus status = new DungeonStatus(2048, false);
+        DungeonStatus.Snapshot snapshot = new DungeonStatus.Snapshot();
+        assertFalse(status.read(1500, snapshot));
+        status.addDungeons(1, 2);
+        assertTrue(status.read(2, snapshot));
+        assertFalse(snapshot.active);
+        status.startRun(2, 7);
+        assertTrue(status.read(2, snapshot));
+        assertTrue(snapshot.active);
+        assertEquals(7, snapshot.partyInside);
+        assertEquals(1, snapshot.partiesServed);
+    }
+}
@@ -0,0 +1,70 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartyLogReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void summaryCountsEveryRecord() throws Exception {
+        String file = writeLog(10);
+        PartyLogReader.Summary summary = new PartyLogReader(file).summarize();
+        assertEquals(10, summary.getRecordCount());
+        assertEquals(3, summary.getMaxDungeonID());
+        assertEquals(4, summary.getPartiesServed(1));
+        assertEquals(8, summary.getTotalTimeServed(1));
+    }
+
+    @Test
+    void aDamagedRecordIsReportedWithItsOffset() throws Exception {
+        String file = writeLog(10);
+        long offset = BinaryPartyLog.HEADER_SIZE + 4L * BinaryPartyLog.RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // -1 reads the same in either byte order.
+            raf.seek(offset + BinaryPartyLog.DUNGEON_ID);
+            raf.writeInt(-1);
+        }
+        IOException e = assertThrows(IOException.class, () -> new PartyLogReader(file).summarize());
+        assertTrue(e.getMessage().contains("offset " + offset), e.getMessage());
+    }
+
+    @Test
+    void aHugeClearTimeIsReportedInsteadOfSizingTheHistogram() throws Exception {
+        String file = writeLog(3);
+        long offset = BinaryPartyLog.HEADER_SIZE + 2L * BinaryPartyLog.RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Read back little-endian: 0x00FFFF7F seconds, far longer than the run's span.
+            raf.seek(offset + BinaryPartyLog.CLEAR_TIME);
+            raf.writeInt(0x7FFFFF00);
+        }
+        IOException e = assertThrows(IOException.class, () -> new PartyLogReader(file).summarize());
+        assertTrue(e.getMessage().contains("offset " + offset), e.getMessage());
+    }
+
+    /**
+     * Writes runs of 2 seconds spread over dungeons 1 to 3.
+     */
+    private String writeLog(int records) throws IOException {
+        String file = dir.resolve("log.bin").toString();
+        PartyLogWriter writer = new PartyLogWriter(file, PartyLogWriter.Format.BINARY,
+                id -> "D" + id, 16, PartyLogWriter.FlushPolicy.NONE, 1000);
+        for (int party = 1; party <= records; party++) {
+            long finish = 10_000L * party;
+            writer.append(party, 1 + (party - 1) % 3, finish - 2000, finish, 2);
+        }
+        writer.close();
+        return file;
+    }
+}
@@ -0,0 +1,71 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartyLogWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyRecordIsWrittenInOrder() throws Exception {
+        Path file = dir.resolve("log.txt");
+        PartyLogWriter writer = new PartyLogWriter(file.toString(), PartyLogWriter.Format.TEXT,
+                id -> "D" + id, 4, PartyLogWriter.FlushPolicy.NONE, 1000);
+        for (int party = 1; party <= 1000; party++) {
+            writer.append(party, party % 7, 0, 1000, 1);
+        }
+        writer.close();
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1000, lines.size());
+        assertEquals("[Party ID: 1000] - Finished at Dungeon [D6 (ID: 6)]: Time [1 seconds]", lines.get(999));
+    }
+
+    @Test
+    void anInterruptedCallerKeepsItsRecordAndItsInterrupt() throws Exception {
+        Path file = dir.resolve("log.txt");
+        PartyLogWriter writer = new PartyLogWriter(file.toString(), PartyLogWriter.Format.TEXT,
+                id -> "D" + id, 1, PartyLogWriter.FlushPolicy.NONE, 1000);
+        Thread.currentThread().interrupt();
+        try {
+            // The one-record queue makes most of these wait for room while interrupted.
+            for (int party = 1; party <= 200; party++) {
+                writer.append(party, 1, 0, 1000, 1);
+            }
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        writer.close();
+        assertEquals(200, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void aFailedWriterIsReportedInsteadOfBlockingCallers() throws Exception {
+        assumeTrue(new File("/dev/full").canWrite(), "needs /dev/full");
+        PartyLogWriter writer = new PartyLogWriter("/dev/full", PartyLogWriter.Format.TEXT,
+                id -> "D" + id, 1, PartyLogWriter.FlushPolicy.NONE, 1000);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(UncheckedIOException.class, () -> {
+                for (int party = 1; ; party++) {
+                    writer.append(party, 1, 0, 1000, 1);
+                }
+            });
+            assertThrows(UncheckedIOException.class, writer::close);
+        });
+    }
+}
@@ -0,0 +1,127 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class QueueManagerTest {
+
+    @Test
+    void partiesHaveOneTankOneHealerAndThreeDps() {
+        QueueManager queue = new QueueManager();
+        for (int i = 0; i < 4; i++) {
+            queue.addPlayer("Tank", 100 + i);
+            queue.addPlayer("Healer", 200 + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.addPlayer("DPS", 300 + i);
+        }
+        PartyBatch batch = new PartyBatch(8);
+        assertEquals(3, queue.takeParties(batch, 8));
+        for (int p = 0; p < 3; p++) {
+            // Oldest first within each role.
+            assertEquals(100 + p, batch.getPlayer(p, 0));
+            assertEquals(200 + p, batch.getPlayer(p, 1));
+            for (int slot = 2; slot < 5; slot++) {
+                assertEquals(300 + 3 * p + slot - 2, batch.getPlayer(p, slot));
+            }
+        }
+        assertFalse(queue.canFormParty());
+        assertEquals(1, queue.getRoleCount("Tank"));
+        assertEquals(1, queue.getRoleCount("Healer"));
+        assertEquals(1, queue.getRoleCount("DPS"));
+    }
+
+    @Test
+    void flexPlayerFillsTheRoleTheOthersLeaveOpen() {
+        QueueManager queue = new QueueManager();
+        // The oldest player could tank, but only as DPS does a party come together.
+        queue.addPlayer("Tank/DPS", 1);
+        queue.addPlayer("Tank", 2);
+        queue.addPlayer("Healer", 3);
+        queue.addPlayer("DPS", 4);
+        queue.addPlayer("DPS", 5);
+        assertTrue(queue.canFormParty());
+        PartyBatch batch = new PartyBatch(1);
+        assertEquals(1, queue.takeParties(batch, 1));
+        assertEquals(2, batch.getPlayer(0, 0));
+        assertEquals(3, batch.getPlayer(0, 1));
+        Set<Integer> dps = new HashSet<>();
+        for (int slot = 2; slot < 5; slot++) {
+            dps.add(batch.getPlayer(0, slot));
+        }
+        assertEquals(Set.of(1, 4, 5), dps);
+        assertEquals(0, queue.getQueuedCount());
+    }
+
+    @Test
+    void flexPlayersFormTheMostPartiesPossible() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            QueueManager queue = new QueueManager();
+            int[] counts = new int[8];
+            int next = 0;
+            // Arrivals in random order, so any mask can be the oldest.
+            int total = random.nextInt(30);
+            for (int i = 0; i < total; i++) {
+                int mask = 1 + random.nextInt(7);
+                counts[mask]++;
+                // The ID carries the mask, so each slot can be checked against it.
+                assertTrue(queue.addPlayer(mask, mask * 1000 + next++));
+            }
+            int expected = bestPartyCount(counts);
+
+            // Take in batches of random size: every call has to leave the rest feasible.
+            Set<Integer> seen = new HashSet<>();
+            int formed = 0;
+            while (queue.canFormParty()) {
+                PartyBatch batch = new PartyBatch(1 + random.nextInt(3));
+                int taken = queue.takeParties(batch, batch.capacity());
+                assertTrue(taken > 0);
+                for (int p = 0; p < taken; p++) {
+                    for (int slot = 0; slot < PartyBatch.PARTY_SIZE; slot++) {
+                        int id = batch.getPlayer(p, slot);
+                        int role = slot < 2 ? 1 << slot : QueueManager.DPS;
+                        assertTrue(((id / 1000) & role) != 0, "player " + id + " cannot fill slot " + slot);
+                        assertTrue(seen.add(id), "player " + id + " placed twice");
+                    }
+                }
+                formed += taken;
+            }
+            assertEquals(expected, formed, "parties from " + Arrays.toString(counts));
+            assertEquals(total - 5 * formed, queue.getQueuedCount());
+        }
+    }
+
+    /**
+     * Finds the most parties the players could form by trying every way of splitting the
+     * flex players between their roles.
+     */
+    private static int bestPartyCount(int[] counts) {
+        int best = 0;
+        for (int th = 0; th <= counts[3]; th++) {
+            for (int td = 0; td <= counts[5]; td++) {
+                for (int hd = 0; hd <= counts[6]; hd++) {
+                    for (int allT = 0; allT <= counts[7]; allT++) {
+                        for (int allH = 0; allT + allH <= counts[7]; allH++) {
+                            int tanks = counts[1] + th + td + allT;
+                            int healers = counts[2] + (counts[3] - th) + hd + allH;
+                            int dps = counts[4] + (counts[5] - td) + (counts[6] - hd)
+                                    + (counts[7] - allT - allH);
+                            best = Math.max(best, Math.min(Math.min(tanks, healers), dps / 3));
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
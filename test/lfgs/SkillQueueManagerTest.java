@@ -0,0 +1,97 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SkillQueueManagerTest {
+
+    @Test
+    void partiesHaveOneTankOneHealerAndThreeDpsOfNearRating() {
+        SkillQueueManager queue = new SkillQueueManager(50, 100, 0, 100, 1, null);
+        queue.addPlayer("Tank", 100, 1500);
+        queue.addPlayer("Healer", 200, 1520);
+        queue.addPlayer("DPS", 300, 3000); // far outside the window
+        queue.addPlayer("DPS", 301, 1490);
+        queue.addPlayer("DPS", 302, 1560);
+        queue.addPlayer("DPS", 303, 1510);
+        assertTrue(queue.canFormParty());
+        PartyBatch batch = new PartyBatch(4);
+        assertEquals(1, queue.takeParties(batch, 4));
+        assertEquals(100, batch.getPlayer(0, 0));
+        assertEquals(200, batch.getPlayer(0, 1));
+        Set<Integer> dps = new HashSet<>();
+        for (int slot = 2; slot < 5; slot++) {
+            dps.add(batch.getPlayer(0, slot));
+        }
+        assertEquals(Set.of(301, 302, 303), dps);
+        assertFalse(queue.canFormParty());
+        assertTrue(queue.getLeftoverPlayers().contains("Leftover DPS: 1"));
+    }
+
+    @Test
+    void playersOutsideTheMaximumToleranceAreNeverMatched() {
+        SkillQueueManager queue = new SkillQueueManager(50, 100, 1000, 200, 1, null);
+        addParty(queue, 1000, 1000, 2000);
+        assertFalse(queue.canFormParty());
+        assertFalse(queue.isMatchPending());
+        assertEquals(Long.MAX_VALUE, waitUntilFullyWidened(queue));
+        assertFalse(queue.canFormParty());
+    }
+
+    @Test
+    void toleranceWidensWithWaitUntilAPartyForms() throws InterruptedException {
+        // The DPS are 500 points from the Tank and Healer: out of reach at first, in reach
+        // after about half a second of waiting.
+        SkillQueueManager queue = new SkillQueueManager(50, 0, 1000, 1000, 1, null);
+        long start = System.nanoTime();
+        addParty(queue, 1000, 1000, 1500);
+        assertFalse(queue.canFormParty());
+        assertTrue(queue.isMatchPending());
+        long wait = queue.nanosUntilWider();
+        assertTrue(wait < TimeUnit.SECONDS.toNanos(1), "next widening in " + wait + " ns");
+
+        PartyBatch batch = new PartyBatch(1);
+        long deadline = start + TimeUnit.SECONDS.toNanos(10);
+        while (queue.takeParties(batch, 1) == 0) {
+            assertTrue(System.nanoTime() < deadline, "no party after the tolerance widened");
+            TimeUnit.NANOSECONDS.sleep(Math.max(1_000_000, queue.nanosUntilWider()));
+        }
+        // 500 points at 1000 points per second, less one bucket of precision.
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+        assertFalse(queue.isMatchPending());
+    }
+
+    private static void addParty(SkillQueueManager queue, int tankRating, int healerRating, int dpsRating) {
+        queue.addPlayer("Tank", 1, tankRating);
+        queue.addPlayer("Healer", 2, healerRating);
+        for (int i = 0; i < 3; i++) {
+            queue.addPlayer("DPS", 3 + i, dpsRating);
+        }
+    }
+
+    /**
+     * Waits, by the queue's own estimate, until no window can widen any further.
+     * @return What nanosUntilWider reports then.
+     */
+    private static long waitUntilFullyWidened(SkillQueueManager queue) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        long wait;
+        while ((wait = queue.nanosUntilWider()) != Long.MAX_VALUE && System.nanoTime() < deadline) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(1_000_000, wait));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                break;
+            }
+        }
+        return wait;
+    }
+}
@@ -0,0 +1,104 @@
+// Programmed by: Jasper Adrada
+
+package lfgs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StatusRankingsTest {
+
+    private static final int DUNGEONS = 300;
+    private static final int TOP = 6;
+
+    @Test
+    void rankingsMatchAFullScanAfterEveryFrame() throws InterruptedException {
+        DungeonStatus status = new DungeonStatus(DUNGEONS, false);
+        status.addDungeons(1, DUNGEONS);
+        StatusRankings rankings = new StatusRankings(status, TOP);
+        Random random = new Random(11);
+        int pool = DUNGEONS;
+        int[] out = new int[TOP];
+        for (int frame = 0; frame < 400; frame++) {
+            for (int change = random.nextInt(40); change > 0; change--) {
+                int id = 1 + random.nextInt(pool);
+                int op = random.nextInt(100);
+                if (op < 2) {
+                    // The pool shrinks (only empty dungeons at the top go) and grows back.
+                    int keep = pool - random.nextInt(20);
+                    while (pool > keep && !status.isActive(pool)) {
+                        status.removeDungeons(pool--, 1);
+                    }
+                } else if (op < 4 && pool < DUNGEONS) {
+                    status.addDungeons(pool + 1, DUNGEONS - pool);
+                    pool = DUNGEONS;
+                } else if (op < 5 && !status.isActive(id)) {
+                    status.restoreCounters(id, random.nextInt(5), 0);
+                } else if (status.isActive(id)) {
+                    status.finishRun(id, 1);
+                } else {
+                    status.startRun(id, frame + 1);
+                }
+            }
+            if (random.nextInt(10) == 0) Thread.sleep(1);
+            rankings.refresh();
+
+            assertArrayEquals(expected(status, 0), keys(status, out, rankings.busiest(out), 0), "busiest");
+            assertArrayEquals(expected(status, 1), keys(status, out, rankings.longestRunning(out), 1), "longest");
+            assertArrayEquals(expected(status, 2), keys(status, out, rankings.longestIdle(out), 2), "idle");
+        }
+    }
+
+    @Test
+    void firstRefreshReadsDungeonsReportedBeforeIt() {
+        DungeonStatus status = new DungeonStatus(10, false);
+        status.addDungeons(1, 10);
+        status.startRun(4, 1);
+        status.finishRun(4, 1);
+        status.startRun(4, 2);
+        StatusRankings rankings = new StatusRankings(status, 3);
+        rankings.refresh();
+        int[] out = new int[3];
+        assertEquals(3, rankings.busiest(out));
+        assertEquals(4, out[0]);
+        assertEquals(1, rankings.longestRunning(out));
+        assertEquals(4, out[0]);
+        assertEquals(3, rankings.longestIdle(out));
+    }
+
+    /**
+     * Ranks every known dungeon the slow way and returns the top keys: parties served
+     * (most first) for view 0, state time (oldest first) for the active (1) and empty (2) views.
+     */
+    private static long[] expected(DungeonStatus status, int view) {
+        List<Long> keys = new ArrayList<>();
+        for (int id = 1; id <= status.getHighestDungeonID(); id++) {
+            Long key = key(status, id, view);
+            if (key != null) keys.add(key);
+        }
+        return keys.stream().mapToLong(Long::longValue).sorted().limit(TOP).toArray();
+    }
+
+    private static long[] keys(DungeonStatus status, int[] ids, int count, int view) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = key(status, ids[i], view);
+        }
+        // Ties may come in any order.
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private static Long key(DungeonStatus status, int id, int view) {
+        DungeonStatus.Snapshot snapshot = new DungeonStatus.Snapshot();
+        if (!status.read(id, snapshot)) return null;
+        if (view == 0) return -(long) snapshot.partiesServed;
+        if (snapshot.active != (view == 1)) return null;
+        return snapshot.stateSince;
+    }
+}